@@ -2,10 +2,15 @@ package org.example.hack1;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
+// Configuración requerida versionada; application.properties (no versionado) tiene prioridad sobre ella
+@PropertySource("classpath:hack1-defaults.properties")
 public class Hack1Application {
 
     public static void main(String[] args) {
@@ -0,0 +1,103 @@
+package org.example.hack1.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Mide el atraso de la réplica contra el primario y decide si las lecturas pueden ir a ella.
+// Si el atraso supera maxLag, la réplica no responde o dejó de recibir WAL, las lecturas vuelven al
+// primario hasta la siguiente medición que esté dentro de la tolerancia.
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Posición actual del WAL en el primario
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    // Estado de la réplica. Sin receptor de WAL en streaming la réplica no avanza: sus LSN quedan
+    // congelados e iguales entre sí, así que compararlos entre ellos no detecta el corte.
+    private static final String REPLICA_STATUS_SQL = "SELECT pg_is_in_recovery() AS in_recovery, " +
+            "EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') AS streaming, " +
+            "pg_last_wal_replay_lsn()::text AS replay_lsn, " +
+            "EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) AS replay_age";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final double maxLagSeconds;
+    private final Counter fallbacks;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.fallbacks = Counter.builder("datasource.replica.fallbacks")
+                .description("Transacciones de solo lectura enviadas al primario por atraso de la réplica")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Atraso medido de la réplica en segundos (-1 = sin medición o sin replicación)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        check();
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:2000}")
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            lagSeconds = measureLag();
+            usable = lagSeconds >= 0 && lagSeconds <= maxLagSeconds;
+        } catch (DataAccessException e) {
+            lagSeconds = -1;
+            usable = false;
+        }
+        if (wasUsable != usable) {
+            log.warn(usable ? "Réplica disponible (atraso {}s): lecturas a la réplica"
+                    : "Réplica atrasada, caída o sin replicación (atraso {}s): lecturas al primario", lagSeconds);
+        }
+    }
+
+    // Segundos de atraso, o -1 si la réplica dejó de recibir WAL. El LSN del primario se lee antes que
+    // el de la réplica: si ésta ya lo aplicó, estaba al día en ese momento.
+    private double measureLag() {
+        String primaryLsn = primary.queryForObject(PRIMARY_LSN_SQL, String.class);
+        Map<String, Object> status = replica.queryForMap(REPLICA_STATUS_SQL);
+        if (!Boolean.TRUE.equals(status.get("in_recovery"))) {
+            // No es una réplica (p. ej. una segunda base local usada como sustituto en desarrollo)
+            return 0;
+        }
+        if (!Boolean.TRUE.equals(status.get("streaming"))) {
+            return -1;
+        }
+        String replayLsn = (String) status.get("replay_lsn");
+        if (replayLsn != null && parseLsn(replayLsn) >= parseLsn(primaryLsn)) {
+            return 0;
+        }
+        // Hay WAL pendiente: el atraso es la antigüedad de la última transacción aplicada (cota superior
+        // si el primario estuvo inactivo antes de la última escritura)
+        Number replayAge = (Number) status.get("replay_age");
+        return replayAge != null ? Math.max(replayAge.doubleValue(), 0) : -1;
+    }
+
+    // "16/B374D848" -> posición de 64 bits comparable
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    public void recordFallback() {
+        fallbacks.increment();
+    }
+}
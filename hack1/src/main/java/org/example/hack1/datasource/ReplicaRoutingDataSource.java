@@ -0,0 +1,31 @@
+package org.example.hack1.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Envía las transacciones readOnly a la réplica y todo lo demás al primario.
+// Debe ir detrás de un LazyConnectionDataSourceProxy: la conexión se pide al ejecutar la primera
+// sentencia, cuando el flag readOnly de la transacción ya está registrado.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        if (!lagMonitor.isUsable()) {
+            lagMonitor.recordFallback();
+            return PRIMARY;
+        }
+        return REPLICA;
+    }
+}
@@ -2,6 +2,7 @@ package org.example.hack1.email;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.hack1.sale.domain.HeavyHitter;
 import org.example.hack1.sale.domain.SalesAggregationService;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -9,6 +10,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -56,12 +58,32 @@ public class EmailService {
                         "- Revenue total: $%.2f\n" +
                         "- SKU más vendido: %s\n" +
                         "- Sucursal líder: %s\n\n" +
+                        "Top SKUs:\n%s\n" +
+                        "Top sucursales:\n%s\n" +
                         "¡Gracias por usar Oreo Insight Factory!",
                 from, to, summary, aggregates.getTotalUnits(),
-                aggregates.getTotalRevenue(), aggregates.getTopSku(), aggregates.getTopBranch()
+                aggregates.getTotalRevenue(), aggregates.getTopSku(), aggregates.getTopBranch(),
+                formatTop(aggregates.getTopSkus()), formatTop(aggregates.getTopBranches())
         );
     }
 
+    // "1. OREO_CLASSIC - 120 unidades" (con "±error" si el conteo es aproximado)
+    private String formatTop(List<HeavyHitter> top) {
+        if (top.isEmpty()) {
+            return "- N/A\n";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < top.size(); i++) {
+            HeavyHitter item = top.get(i);
+            sb.append(i + 1).append(". ").append(item.key()).append(" - ").append(item.units()).append(" unidades");
+            if (item.maxError() > 0) {
+                sb.append(" (±").append(item.maxError()).append(")");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
     private String buildFallbackContent(SalesAggregationService.SalesAggregates aggregates,
                                         LocalDate from, LocalDate to) {
         return String.format(
@@ -1,10 +1,26 @@
 package org.example.hack1.sale.application;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.example.hack1.sale.domain.event.ReportRequestedEvent;
+import org.example.hack1.sale.domain.DuplicateSaleKeyException;
+import org.example.hack1.sale.domain.SaleExportService;
+import org.example.hack1.sale.domain.SaleImportService;
 import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.domain.SaleWriteBehindBuffer;
+import org.example.hack1.sale.domain.SalesAggregationService;
+import org.example.hack1.sale.domain.SalesSeriesService;
+import org.example.hack1.sale.domain.SalesVersionTracker;
+import org.example.hack1.sale.domain.SeriesGranularity;
+import org.example.hack1.sale.dto.SaleBatchResponseDto;
+import org.example.hack1.sale.dto.SaleCursorPageDto;
+import org.example.hack1.sale.dto.SaleImportStatusDto;
+import org.example.hack1.sale.dto.SalePageDto;
 import org.example.hack1.sale.dto.SaleRequestDto;
 import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.dto.SalesSeriesResponseDto;
+import org.example.hack1.sale.dto.TopSalesResponseDto;
+import org.example.hack1.security.sec.JwtPrincipal;
 import org.example.hack1.security.sec.SalesPermissionService;
 import org.example.hack1.security.sec.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,14 +29,23 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/sales")
@@ -29,6 +54,24 @@ public class SaleController {
     @Autowired
     private SaleService saleService;
 
+    @Autowired
+    private SalesAggregationService aggregationService;
+
+    @Autowired
+    private SalesSeriesService seriesService;
+
+    @Autowired
+    private SaleImportService saleImportService;
+
+    @Autowired
+    private SaleWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private SaleExportService saleExportService;
+
+    @Autowired
+    private SalesVersionTracker versionTracker;
+
     @Autowired
     private SecurityUtils securityUtils;
 
@@ -42,15 +85,89 @@ public class SaleController {
     // CREATE - Crear nueva venta
     @PostMapping
     @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
-    public ResponseEntity<SaleResponseDto> createSale(@Valid @RequestBody SaleRequestDto request) {
+    public ResponseEntity<SaleResponseDto> createSale(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody SaleRequestDto request) {
         // Validar permisos usando tu SalesPermissionService
         permissionService.validateSaleCreation(request.getBranch());
 
-        String username = securityUtils.getCurrentUsername();
-        SaleResponseDto createdSale = saleService.createSale(request, username);
+        // El header y clientSaleId son la misma clave: si vienen ambos deben coincidir
+        if (idempotencyKey != null) {
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > 100) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key debe tener entre 1 y 100 caracteres");
+            }
+            if (request.getClientSaleId() != null && !request.getClientSaleId().equals(idempotencyKey)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key y clientSaleId no coinciden");
+            }
+            request.setClientSaleId(idempotencyKey);
+        }
+
+        JwtPrincipal principal = securityUtils.requireCurrentPrincipal();
+        if (writeBehindBuffer.isEnabled()) {
+            // Los reintentos se resuelven antes de encolar
+            Optional<SaleResponseDto> replay = saleService.findReplay(request.getClientSaleId(), principal.username());
+            if (replay.isPresent()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(replay.get());
+            }
+            CompletableFuture<SaleResponseDto> pending = writeBehindBuffer.submit(request, principal);
+            if (!writeBehindBuffer.isDurableAck()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(writeBehindBuffer.await(pending));
+        }
+
+        SaleResponseDto createdSale;
+        try {
+            createdSale = saleService.createSale(request, principal);
+        } catch (DuplicateSaleKeyException e) {
+            // Un reintento concurrente hizo commit primero: responder con su venta
+            createdSale = saleService.findReplay(e.getClientKey(), principal.username()).orElseThrow(() -> e);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(createdSale);
     }
 
+    // CREATE - Alta masiva (sincronización de POS), con resultado por ítem
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SaleBatchResponseDto> createSalesBatch(@RequestBody List<SaleRequestDto> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El lote no puede estar vacío");
+        }
+
+        // Permisos por sucursal: se validan una vez por lote dentro del servicio
+        JwtPrincipal principal = securityUtils.requireCurrentPrincipal();
+        SaleBatchResponseDto result = saleService.createSalesBatch(requests, principal);
+
+        HttpStatus status = result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // CREATE - Importación en streaming de NDJSON o CSV (back-fills de fin de día)
+    @PostMapping(value = "/import", consumes = {SaleImportService.NDJSON, SaleImportService.CSV})
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SaleImportStatusDto> importSales(
+            @RequestHeader(value = "X-Import-Id", required = false) String importId,
+            HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        String format = contentType != null && contentType.startsWith(SaleImportService.CSV)
+                ? SaleImportService.CSV
+                : SaleImportService.NDJSON;
+
+        JwtPrincipal principal = securityUtils.requireCurrentPrincipal();
+        SaleImportStatusDto status = saleImportService.importSales(request.getInputStream(), format, importId, principal);
+
+        HttpStatus httpStatus = "COMPLETED".equals(status.getStatus()) ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return ResponseEntity.status(httpStatus).body(status);
+    }
+
+    // READ - Progreso de una importación (en curso o terminada en la última hora)
+    @GetMapping("/import/{importId}")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SaleImportStatusDto> getImportStatus(@PathVariable String importId) {
+        JwtPrincipal principal = securityUtils.requireCurrentPrincipal();
+        return ResponseEntity.ok(saleImportService.getStatus(importId, principal));
+    }
+
     // READ - Obtener venta por ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
@@ -63,7 +180,7 @@ public class SaleController {
         return ResponseEntity.ok(sale);
     }
 
-    // READ - Listar ventas con filtros
+    // READ - Listar ventas con filtros (count=exact, por defecto: Page con COUNT exacto)
     @GetMapping
     @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
     public ResponseEntity<Page<SaleResponseDto>> getSales(
@@ -71,7 +188,8 @@ public class SaleController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
 
         // Si es usuario BRANCH, solo puede ver su sucursal
         if (!securityUtils.isCentralUser()) {
@@ -83,11 +201,222 @@ public class SaleController {
             permissionService.validateBranchAccess(branch);
         }
 
+        if (isNotModified(webRequest, branch)) {
+            return null;
+        }
+
         Pageable pageable = PageRequest.of(page, size);
         Page<SaleResponseDto> sales = saleService.getSales(branch, from, to, pageable);
         return ResponseEntity.ok(sales);
     }
 
+    // READ - Listar ventas sin COUNT exacto (?count=none) o con total estimado (?count=estimated)
+    @GetMapping(params = {"count", "count!=" + SaleService.COUNT_EXACT, "pagination!=keyset"})
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SalePageDto> getSalesWithoutCount(
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam String count,
+            WebRequest webRequest) {
+
+        if (!SaleService.COUNT_NONE.equals(count) && !SaleService.COUNT_ESTIMATED.equals(count)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count debe ser exact, none o estimated");
+        }
+
+        // Si es usuario BRANCH, solo puede ver su sucursal
+        if (!securityUtils.isCentralUser()) {
+            branch = securityUtils.getCurrentUserBranch();
+        }
+
+        if (branch != null) {
+            permissionService.validateBranchAccess(branch);
+        }
+
+        if (isNotModified(webRequest, branch)) {
+            return null;
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        return ResponseEntity.ok(saleService.getSalesSlice(branch, from, to, pageable,
+                SaleService.COUNT_ESTIMATED.equals(count)));
+    }
+
+    // READ - Listar ventas con paginación keyset (?pagination=keyset&cursor=...): sin OFFSET ni COUNT
+    @GetMapping(params = "pagination=keyset")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SaleCursorPageDto> getSalesByCursor(
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            WebRequest webRequest) {
+
+        // Si es usuario BRANCH, solo puede ver su sucursal
+        if (!securityUtils.isCentralUser()) {
+            branch = securityUtils.getCurrentUserBranch();
+        }
+
+        if (branch != null) {
+            permissionService.validateBranchAccess(branch);
+        }
+
+        if (isNotModified(webRequest, branch)) {
+            return null;
+        }
+
+        return ResponseEntity.ok(saleService.getSalesAfter(branch, from, to, cursor, size, includeTotal));
+    }
+
+    // READ - Exportación completa de un rango en streaming (CSV o NDJSON, gzip si el cliente lo acepta)
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @RequestParam(required = false) String branch,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = SaleExportService.FORMAT_CSV) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+        SaleExportService.validateFormat(format);
+
+        // Si es usuario BRANCH, solo puede exportar su sucursal
+        if (!securityUtils.isCentralUser()) {
+            branch = securityUtils.getCurrentUserBranch();
+        }
+        if (branch != null) {
+            permissionService.validateBranchAccess(branch);
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String exportBranch = branch;
+        // 503 si ya están ocupados todos los hilos de exportación
+        saleExportService.acquireSlot();
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192)) {
+                        saleExportService.export(from, to, exportBranch, format, gzipOut);
+                    }
+                } else {
+                    saleExportService.export(from, to, exportBranch, format, out);
+                }
+            } finally {
+                saleExportService.releaseSlot();
+            }
+        };
+
+        String filename = "sales_" + from + "_" + to + "." + format;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(SaleExportService.FORMAT_CSV.equals(format)
+                        ? MediaType.parseMediaType(SaleImportService.CSV)
+                        : MediaType.parseMediaType(SaleImportService.NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    // READ - Top-K de SKUs y sucursales (cada entrada trae su cota de error)
+    @GetMapping("/top")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<TopSalesResponseDto> getTopSales(
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "5") int limit,
+            WebRequest webRequest) {
+
+        // Los agregados (y su caché) guardan solo sales.aggregation.top-n entradas por top: un limit
+        // mayor devolvería en silencio menos de lo pedido
+        if (limit < 1 || limit > aggregationService.getTopN()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit debe estar entre 1 y " + aggregationService.getTopN());
+        }
+
+        // Si es usuario BRANCH, solo puede ver su sucursal
+        if (!securityUtils.isCentralUser()) {
+            branch = securityUtils.getCurrentUserBranch();
+        }
+
+        if (branch != null) {
+            permissionService.validateBranchAccess(branch);
+        }
+
+        if (isNotModified(webRequest, branch)) {
+            return null;
+        }
+
+        LocalDate fromDate = from != null ? from : LocalDate.now().minusDays(7);
+        LocalDate toDate = to != null ? to : LocalDate.now();
+        if (fromDate.isAfter(toDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+
+        SalesAggregationService.SalesAggregates aggregates =
+                aggregationService.calculateAggregates(fromDate, toDate, branch);
+
+        TopSalesResponseDto response = TopSalesResponseDto.builder()
+                .from(fromDate)
+                .to(toDate)
+                .branch(branch)
+                .totalUnits(aggregates.getTotalUnits())
+                .topSkus(aggregates.getTopSkus().stream().limit(limit).toList())
+                .topBranches(aggregates.getTopBranches().stream().limit(limit).toList())
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    // READ - Serie temporal (hour|day|week) servida desde los rollups
+    @GetMapping("/series")
+    @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
+    public ResponseEntity<SalesSeriesResponseDto> getSalesSeries(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest) {
+
+        SeriesGranularity seriesGranularity = SeriesGranularity.from(granularity);
+
+        // Si es usuario BRANCH, solo puede ver su sucursal
+        if (!securityUtils.isCentralUser()) {
+            branch = securityUtils.getCurrentUserBranch();
+        }
+
+        if (branch != null) {
+            permissionService.validateBranchAccess(branch);
+        }
+
+        if (isNotModified(webRequest, branch)) {
+            return null;
+        }
+
+        LocalDate fromDate = from != null ? from : LocalDate.now().minusDays(7);
+        LocalDate toDate = to != null ? to : LocalDate.now();
+        if (fromDate.isAfter(toDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from no puede ser posterior a to");
+        }
+
+        SalesSeriesResponseDto response = SalesSeriesResponseDto.builder()
+                .granularity(seriesGranularity)
+                .branch(branch)
+                .from(fromDate)
+                .to(toDate)
+                .points(seriesService.getSeries(seriesGranularity, fromDate, toDate, branch))
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
     // UPDATE - Actualizar venta
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('CENTRAL', 'BRANCH')")
@@ -165,6 +494,12 @@ public class SaleController {
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
+    // Lecturas condicionales: si la sucursal no tuvo escrituras desde la versión que tiene el cliente
+    // (If-None-Match / If-Modified-Since) responde 304 sin ir a la base; si no, deja ETag y Last-Modified
+    private boolean isNotModified(WebRequest webRequest, String branch) {
+        return webRequest.checkNotModified(versionTracker.etag(branch), versionTracker.lastModified(branch));
+    }
+
     // Clases internas para DTOs específicos del controlador
     public static class WeeklySummaryRequest {
         private LocalDate from;
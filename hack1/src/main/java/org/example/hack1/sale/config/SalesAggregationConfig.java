@@ -0,0 +1,18 @@
+package org.example.hack1.sale.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class SalesAggregationConfig {
+
+    // Pool acotado para las particiones de los reportes: cada tarea ocupa una conexión,
+    // así que el paralelismo debe quedar por debajo del tamaño del pool de Hikari
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool salesAggregationPool(@Value("${sales.aggregation.parallelism:4}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+}
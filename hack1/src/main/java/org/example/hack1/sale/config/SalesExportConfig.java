@@ -0,0 +1,42 @@
+package org.example.hack1.sale.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class SalesExportConfig implements WebMvcConfigurer {
+
+    private final AsyncTaskExecutor salesExportExecutor;
+
+    public SalesExportConfig(@Qualifier("salesExportExecutor") AsyncTaskExecutor salesExportExecutor) {
+        this.salesExportExecutor = salesExportExecutor;
+    }
+
+    // Hilos propios para GET /sales/export: una exportación ocupa su hilo (y una conexión) durante
+    // minutos, así que no comparte applicationTaskExecutor con los @Async. La admisión la controla
+    // SaleExportService con tantos permisos como hilos; la cola solo absorbe el instante entre que una
+    // exportación suelta su permiso y su hilo vuelve a quedar libre.
+    @Bean
+    public static ThreadPoolTaskExecutor salesExportExecutor(
+            @Value("${sales.export.max-concurrent:4}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(maxConcurrent);
+        executor.setThreadNamePrefix("export-");
+        return executor;
+    }
+
+    // Se aplica después de la configuración de Spring Boot (que fija applicationTaskExecutor y el
+    // timeout): el StreamingResponseBody corre en salesExportExecutor y conserva el timeout
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(salesExportExecutor);
+    }
+}
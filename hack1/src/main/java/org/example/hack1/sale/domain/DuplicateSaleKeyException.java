@@ -0,0 +1,18 @@
+package org.example.hack1.sale.domain;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Otra petición con la misma clave de idempotencia hizo commit primero; la transacción actual se revierte.
+// Si nadie la atrapa para devolver la venta original, el cliente recibe 409 y puede reintentar.
+@Getter
+public class DuplicateSaleKeyException extends ResponseStatusException {
+
+    private final String clientKey;
+
+    public DuplicateSaleKeyException(String clientKey) {
+        super(HttpStatus.CONFLICT, "La venta con clave " + clientKey + " ya fue registrada");
+        this.clientKey = clientKey;
+    }
+}
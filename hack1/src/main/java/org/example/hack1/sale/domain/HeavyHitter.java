@@ -0,0 +1,5 @@
+package org.example.hack1.sale.domain;
+
+// Entrada de un top-K: las unidades reales están en [units - maxError, units]
+public record HeavyHitter(String key, long units, long maxError) {
+}
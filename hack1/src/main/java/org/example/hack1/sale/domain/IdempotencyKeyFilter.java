@@ -0,0 +1,68 @@
+package org.example.hack1.sale.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.hack1.sale.repo.SaleIdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+// Filtro de Bloom delante de sale_idempotency_keys: si dice "no está", la venta es nueva y se crea
+// sin consultar la tabla. Es local al nodo y se precarga al arrancar; una clave que no alcanzó a
+// entrar (otro nodo, arranque en curso) no rompe nada porque la PK de la tabla sigue siendo la
+// garantía, solo cambia el camino de detección (conflicto al insertar en vez de lookup previo).
+@Slf4j
+@Component
+public class IdempotencyKeyFilter {
+
+    private final SaleIdempotencyKeyRepository keyRepository;
+    private final BloomFilter bloomFilter;
+    private final Counter skippedLookups;
+    private final Counter lookups;
+
+    public IdempotencyKeyFilter(SaleIdempotencyKeyRepository keyRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${sales.idempotency.bloom.expected-keys:1000000}") long expectedKeys,
+                                @Value("${sales.idempotency.bloom.fpp:0.01}") double fpp) {
+        this.keyRepository = keyRepository;
+        this.bloomFilter = new BloomFilter(expectedKeys, fpp);
+        this.skippedLookups = Counter.builder("sales.idempotency.lookups")
+                .tag("result", "skipped")
+                .description("Claves descartadas por el filtro de Bloom sin ir a la base")
+                .register(meterRegistry);
+        this.lookups = Counter.builder("sales.idempotency.lookups")
+                .tag("result", "queried")
+                .description("Claves que requirieron consultar sale_idempotency_keys")
+                .register(meterRegistry);
+    }
+
+    // No es readOnly a propósito: desde la réplica faltarían las claves escritas en los últimos
+    // segundos y esos reintentos se tratarían como ventas nuevas hasta chocar con la PK
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void warmUp() {
+        long[] loaded = {0};
+        try (Stream<String> keys = keyRepository.streamAllKeys()) {
+            keys.forEach(key -> {
+                bloomFilter.put(key);
+                loaded[0]++;
+            });
+        }
+        log.info("Filtro de idempotencia precargado con {} claves", loaded[0]);
+    }
+
+    public boolean mightContain(String clientKey) {
+        boolean maybe = bloomFilter.mightContain(clientKey);
+        (maybe ? lookups : skippedLookups).increment();
+        return maybe;
+    }
+
+    public void put(String clientKey) {
+        bloomFilter.put(clientKey);
+    }
+}
@@ -9,15 +9,27 @@ import org.example.hack1.user.domain.User;
 
 import java.time.LocalDateTime;
 
+// Índices por camino de acceso (creados por las migraciones V2/V3; ddl-auto=validate no los genera):
+//  - sold_at/id y branch/sold_at/id: rangos por fecha, filtros por sucursal y paginación keyset
+//  - created_by: FK hacia users
+//  - además V3 crea idx_sales_sold_at_covering (sold_at) INCLUDE (branch, sku, units, price) para que
+//    la agregación por rango sea index-only; JPA no puede declarar columnas INCLUDE
 @Entity
-@Table(name = "sales")
+@Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_sold_at_id", columnList = "sold_at DESC, id DESC"),
+        @Index(name = "idx_sales_branch_sold_at_id", columnList = "branch, sold_at DESC, id DESC"),
+        @Index(name = "idx_sales_created_by", columnList = "created_by")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Sale {
+    // Secuencia con allocationSize 50 (optimizador pooled): permite batching JDBC de inserts,
+    // que IDENTITY impide porque necesita el id de cada fila al insertarla
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_seq")
+    @SequenceGenerator(name = "sales_seq", sequenceName = "sales_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,38 @@
+package org.example.hack1.sale.domain;
+
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posición de la última venta entregada en GET /sales?pagination=keyset.
+// Viaja como base64url opaco para que el cliente no dependa de su formato.
+public record SaleCursor(LocalDateTime soldAt, Long id) {
+
+    // Cursor inicial: antes de cualquier venta real en orden descendente
+    public static final SaleCursor START = new SaleCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static SaleCursor of(SaleResponseDto sale) {
+        return new SaleCursor(sale.getSoldAt(), sale.getId());
+    }
+
+    public String encode() {
+        String raw = soldAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SaleCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new SaleCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor inválido");
+        }
+    }
+}
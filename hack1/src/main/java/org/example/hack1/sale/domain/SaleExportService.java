@@ -0,0 +1,113 @@
+package org.example.hack1.sale.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+// Exportación en streaming (CSV o NDJSON): cada fila va del cursor de la base al OutputStream de la
+// respuesta sin acumularse, así que la memoria no depende del tamaño del rango.
+@Service
+public class SaleExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    private static final String CSV_HEADER = "id,sku,units,price,branch,soldAt,createdBy";
+
+    private final SaleRepository saleRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    // Un permiso por hilo de salesExportExecutor (misma propiedad): con todos ocupados la exportación
+    // se rechaza antes de pasar al ejecutor en lugar de esperar en una cola
+    private final Semaphore slots;
+
+    public SaleExportService(SaleRepository saleRepository,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${sales.export.max-concurrent:4}") int maxConcurrent) {
+        this.saleRepository = saleRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    // El permiso se libera en releaseSlot() cuando termina el StreamingResponseBody
+    public void acquireSlot() {
+        if (!slots.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Demasiadas exportaciones en curso, reintente en unos minutos");
+        }
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    public static String validateFormat(String format) {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato no soportado: use csv o ndjson");
+        }
+        return format;
+    }
+
+    // Se ejecuta en el hilo del StreamingResponseBody: la transacción (y el cursor) viven solo
+    // mientras se escribe la respuesta
+    public void export(LocalDate from, LocalDate to, String branch, String format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<SaleResponseDto> sales = saleRepository.streamResponses(
+                        from.atStartOfDay(), to.atTime(LocalTime.MAX), branch)) {
+                    if (FORMAT_CSV.equals(format)) {
+                        writer.write(CSV_HEADER);
+                        writer.write('\n');
+                    }
+                    Iterator<SaleResponseDto> iterator = sales.iterator();
+                    while (iterator.hasNext()) {
+                        SaleResponseDto sale = iterator.next();
+                        writer.write(FORMAT_CSV.equals(format) ? toCsv(sale) : objectMapper.writeValueAsString(sale));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    // Normalmente el cliente cortó la descarga: se revierte y se cierra el cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String toCsv(SaleResponseDto sale) {
+        return sale.getId() + "," + csvField(sale.getSku()) + "," + sale.getUnits() + "," + sale.getPrice() + "," +
+                csvField(sale.getBranch()) + "," + sale.getSoldAt() + "," + csvField(sale.getCreatedBy());
+    }
+
+    // RFC 4180: comillas solo si el valor las necesita
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
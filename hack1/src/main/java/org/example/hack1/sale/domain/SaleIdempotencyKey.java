@@ -0,0 +1,32 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Clave de idempotencia enviada por el POS (Idempotency-Key o clientSaleId) -> venta creada.
+// Vive fuera de sales para que la unicidad no dependa de la clave de partición de esa tabla.
+@Entity
+@Table(name = "sale_idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleIdempotencyKey {
+    @Id
+    @Column(name = "client_key", length = 100)
+    private String clientKey;
+
+    @Column(name = "sale_id", nullable = false)
+    private Long saleId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,231 @@
+package org.example.hack1.sale.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.example.hack1.sale.dto.SaleBatchItemResultDto;
+import org.example.hack1.sale.dto.SaleBatchResponseDto;
+import org.example.hack1.sale.dto.SaleImportStatusDto;
+import org.example.hack1.sale.dto.SaleRequestDto;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Importación en streaming (NDJSON o CSV): se lee línea a línea y se guarda en bloques de chunkSize,
+// cada bloque en su propia transacción. En memoria solo vive el bloque actual, nunca el archivo.
+@Slf4j
+@Service
+public class SaleImportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("sku", "units", "price", "branch");
+
+    private final SaleService saleService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    // Las importaciones en curso no vencen ni se desalojan (un back-fill puede durar horas): si no,
+    // GET /sales/import/{id} daría 404 a mitad de camino y un reintento con el mismo X-Import-Id
+    // arrancaría una segunda importación del mismo archivo. Al terminar pasan al caché acotado.
+    private final Map<ImportKey, SaleImportStatusDto> running = new ConcurrentHashMap<>();
+    private final Cache<ImportKey, SaleImportStatusDto> finished = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public SaleImportService(SaleService saleService,
+                             ObjectMapper objectMapper,
+                             @Value("${sales.import.chunk-size:500}") int chunkSize) {
+        this.saleService = saleService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Solo quien la inició ve la importación: para cualquier otro usuario no existe
+    public SaleImportStatusDto getStatus(String importId, JwtPrincipal principal) {
+        ImportKey key = new ImportKey(principal.userId(), importId);
+        SaleImportStatusDto status = running.get(key);
+        if (status == null) {
+            status = finished.getIfPresent(key);
+        }
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Importación no encontrada");
+        }
+        return status;
+    }
+
+    public SaleImportStatusDto importSales(InputStream body, String format, String importId, JwtPrincipal principal)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            // Antes de registrar la importación: una cabecera inválida es un 400, no una importación FAILED
+            String[] csvHeader = CSV.equals(format) ? readCsvHeader(reader) : null;
+
+            SaleImportStatusDto status = new SaleImportStatusDto();
+            status.setImportId(importId != null && !importId.isBlank() ? importId : UUID.randomUUID().toString());
+            status.setStatus("RUNNING");
+            status.setFormat(format);
+            status.setStartedAt(LocalDateTime.now());
+            // X-Import-Id lo elige el cliente: se distingue por usuario para que no choquen ni se filtren.
+            // Una importación terminada entra en finished antes de salir de running, así que siempre
+            // está en alguno de los dos.
+            ImportKey key = new ImportKey(principal.userId(), status.getImportId());
+            if (running.putIfAbsent(key, status) != null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya existe una importación con ese id");
+            }
+            if (finished.getIfPresent(key) != null) {
+                running.remove(key);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Ya existe una importación con ese id");
+            }
+
+            try {
+                readBody(reader, csvHeader, status, principal);
+            } finally {
+                finished.put(key, status);
+                running.remove(key);
+            }
+            return status;
+        }
+    }
+
+    private void readBody(BufferedReader reader, String[] csvHeader, SaleImportStatusDto status, JwtPrincipal principal) {
+        List<SaleRequestDto> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        try {
+            long lineNumber = csvHeader != null ? 1 : 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                status.setLinesRead(status.getLinesRead() + 1);
+                try {
+                    chunk.add(csvHeader != null ? parseCsv(csvHeader, line) : parseNdjson(line));
+                    chunkLines.add(lineNumber);
+                } catch (IllegalArgumentException | IOException e) {
+                    recordFailure(status, lineNumber, "formato inválido (" + e.getMessage() + ")");
+                }
+
+                // El bloque se escribe antes de seguir leyendo: el cuerpo se consume al ritmo de la base
+                if (chunk.size() == chunkSize) {
+                    flushChunk(status, chunk, chunkLines, principal);
+                }
+            }
+            flushChunk(status, chunk, chunkLines, principal);
+            status.setStatus("COMPLETED");
+        } catch (IOException | RuntimeException e) {
+            log.error("Importación {} interrumpida: {}", status.getImportId(), e.getMessage());
+            status.setStatus("FAILED");
+            addError(status, "Importación interrumpida: " + e.getMessage());
+        } finally {
+            status.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void flushChunk(SaleImportStatusDto status, List<SaleRequestDto> chunk, List<Long> chunkLines,
+                            JwtPrincipal principal) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        SaleBatchResponseDto result = saleService.createSalesBatch(chunk, principal);
+        status.setCreated(status.getCreated() + result.getCreated());
+        for (SaleBatchItemResultDto item : result.getResults()) {
+            if (item.getErrors() != null) {
+                recordFailure(status, chunkLines.get(item.getIndex()), String.join("; ", item.getErrors()));
+            }
+        }
+        log.info("Importación {}: {} líneas leídas, {} ventas creadas",
+                status.getImportId(), status.getLinesRead(), status.getCreated());
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private SaleRequestDto parseNdjson(String line) throws IOException {
+        return objectMapper.readValue(line, SaleRequestDto.class);
+    }
+
+    private String[] readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null || header.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El CSV debe empezar con la cabecera sku,units,price,branch,soldAt");
+        }
+        String[] columns = header.split(",");
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].trim();
+        }
+        List<String> missing = new ArrayList<>(REQUIRED_CSV_COLUMNS);
+        missing.removeAll(List.of(columns));
+        if (!missing.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Faltan columnas en la cabecera del CSV: " + String.join(",", missing));
+        }
+        return columns;
+    }
+
+    // CSV simple separado por comas, sin comillas; las columnas se ubican por la cabecera
+    private SaleRequestDto parseCsv(String[] header, String line) {
+        String[] values = line.split(",", -1);
+        if (values.length != header.length) {
+            throw new IllegalArgumentException("se esperaban " + header.length + " columnas");
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            row.put(header[i], values[i].trim());
+        }
+
+        SaleRequestDto request = new SaleRequestDto();
+        request.setSku(emptyToNull(row.get("sku")));
+        request.setBranch(emptyToNull(row.get("branch")));
+        String units = emptyToNull(row.get("units"));
+        request.setUnits(units != null ? Integer.valueOf(units) : null);
+        String price = emptyToNull(row.get("price"));
+        request.setPrice(price != null ? Double.valueOf(price) : null);
+        String soldAt = emptyToNull(row.get("soldAt"));
+        try {
+            request.setSoldAt(soldAt != null ? LocalDateTime.parse(soldAt) : null);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("soldAt inválido: " + soldAt);
+        }
+        return request;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private void recordFailure(SaleImportStatusDto status, long lineNumber, String message) {
+        status.setFailed(status.getFailed() + 1);
+        addError(status, "Línea " + lineNumber + ": " + message);
+    }
+
+    // Solo se guardan los primeros errores para que el estado no crezca con el archivo
+    private void addError(SaleImportStatusDto status, String message) {
+        if (status.getErrors().size() < MAX_REPORTED_ERRORS) {
+            status.getErrors().add(message);
+        }
+    }
+
+    private record ImportKey(Long userId, String importId) {
+    }
+}
@@ -1,79 +1,470 @@
 package org.example.hack1.sale.domain;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.example.hack1.sale.dto.SaleBatchItemResultDto;
+import org.example.hack1.sale.dto.SaleBatchResponseDto;
+import org.example.hack1.sale.dto.SaleCursorPageDto;
+import org.example.hack1.sale.dto.SalePageDto;
 import org.example.hack1.sale.dto.SaleRequestDto;
 import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleIdempotencyKeyRepository;
 import org.example.hack1.sale.repo.SaleRepository;
-import org.example.hack1.user.domain.User;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.user.domain.UserRole;
 import org.example.hack1.user.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SaleService {
 
+    // Modos de conteo de GET /sales (?count=)
+    public static final String COUNT_EXACT = "exact";
+    public static final String COUNT_NONE = "none";
+    public static final String COUNT_ESTIMATED = "estimated";
+
     private final SaleRepository saleRepository;
     private final UserRepository userRepository;
+    private final SalesRollupService rollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final SaleIdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SalesCountEstimator countEstimator;
+    private final SalesPartitionService partitionService;
+
+    @Value("${sales.batch.max-size:1000}")
+    private int maxBatchSize;
 
-    public SaleResponseDto createSale(SaleRequestDto request, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado"));
+    @Transactional
+    public SaleResponseDto createSale(SaleRequestDto request, JwtPrincipal principal) {
+        // Reintento del POS: devolver la venta original en lugar de duplicarla
+        String clientKey = request.getClientSaleId();
+        if (clientKey != null) {
+            Optional<SaleResponseDto> replay = findReplay(clientKey, principal.username());
+            if (replay.isPresent()) {
+                return replay.get();
+            }
+        }
 
         // Validar que usuarios BRANCH solo creen ventas en su sucursal
-        if (user.getUserRole().name().equals("BRANCH") && !user.getBranch().equals(request.getBranch())) {
+        if (!canCreateIn(principal, request.getBranch())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No puedes crear ventas en otra sucursal");
         }
+        requireExistingUser(principal);
+
+        Sale sale = toSale(request, principal);
+        partitionService.ensurePartitions(List.of(sale.getSoldAt()));
+
+        Sale savedSale = saleRepository.save(sale);
+        if (clientKey != null) {
+            registerKey(clientKey, savedSale);
+        }
+        rollupService.recordSale(savedSale.getSku(), savedSale.getBranch(), savedSale.getSoldAt(),
+                savedSale.getUnits(), savedSale.getPrice());
+        eventPublisher.publishEvent(new SaleChangedEvent(savedSale.getBranch(), savedSale.getSoldAt()));
+        return mapToResponseDto(savedSale, principal.username());
+    }
+
+    // Alta masiva: sin lookup de usuario (rol y sucursal vienen del token), validación por ítem y un único flush con batching JDBC.
+    // Los ítems inválidos se reportan por índice y no impiden guardar el resto.
+    @Transactional
+    public SaleBatchResponseDto createSalesBatch(List<SaleRequestDto> requests, JwtPrincipal principal) {
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El lote admite como máximo " + maxBatchSize + " ventas");
+        }
+        requireExistingUser(principal);
+
+        // Claves ya registradas: una sola consulta para todo el lote
+        Map<String, SaleIdempotencyKey> existingKeys = new HashMap<>();
+        List<String> batchKeys = requests.stream()
+                .filter(request -> request != null && request.getClientSaleId() != null)
+                .map(SaleRequestDto::getClientSaleId)
+                .distinct()
+                .collect(Collectors.toList());
+        if (!batchKeys.isEmpty()) {
+            for (SaleIdempotencyKey key : idempotencyKeyRepository.findAllById(batchKeys)) {
+                existingKeys.put(key.getClientKey(), key);
+            }
+        }
+
+        List<SaleBatchItemResultDto> results = new ArrayList<>(requests.size());
+        List<Sale> sales = new ArrayList<>(requests.size());
+        List<String> clientKeys = new ArrayList<>(requests.size());
+        List<SaleBatchItemResultDto> createdResults = new ArrayList<>(requests.size());
+        Set<String> seenKeys = new HashSet<>();
+        int replayed = 0;
+
+        for (int i = 0; i < requests.size(); i++) {
+            SaleRequestDto request = requests.get(i);
+            List<String> errors = validateBatchItem(request, principal);
+            String clientKey = request != null ? request.getClientSaleId() : null;
+            SaleIdempotencyKey existing = clientKey != null ? existingKeys.get(clientKey) : null;
+            if (clientKey != null && !seenKeys.add(clientKey)) {
+                errors.add("clientSaleId repetido dentro del lote: " + clientKey);
+            } else if (existing != null && !existing.getUserId().equals(principal.userId())) {
+                errors.add("clientSaleId ya usado por otro usuario: " + clientKey);
+            }
+
+            SaleBatchItemResultDto result = new SaleBatchItemResultDto(i, null, errors.isEmpty() ? null : errors, null);
+            results.add(result);
+            if (!errors.isEmpty()) {
+                continue;
+            }
+            if (existing != null) {
+                result.setId(existing.getSaleId());
+                result.setReplayed(true);
+                replayed++;
+            } else {
+                sales.add(toSale(request, principal));
+                clientKeys.add(clientKey);
+                createdResults.add(result);
+            }
+        }
+
+        List<Sale> savedSales = persistSales(sales, clientKeys);
+        int created = 0;
+        Map<String, SaleBatchItemResultDto> lostRaces = new HashMap<>();
+        for (int i = 0; i < savedSales.size(); i++) {
+            if (savedSales.get(i) != null) {
+                createdResults.get(i).setId(savedSales.get(i).getId());
+                created++;
+            } else {
+                lostRaces.put(clientKeys.get(i), createdResults.get(i));
+            }
+        }
+
+        // Otra petición registró la clave entre el lookup inicial y el INSERT: se informa como reintento
+        // con la venta original, igual que si la clave hubiera estado desde el principio
+        if (!lostRaces.isEmpty()) {
+            for (SaleIdempotencyKey key : idempotencyKeyRepository.findAllById(lostRaces.keySet())) {
+                SaleBatchItemResultDto result = lostRaces.remove(key.getClientKey());
+                if (key.getUserId().equals(principal.userId())) {
+                    result.setId(key.getSaleId());
+                    result.setReplayed(true);
+                    replayed++;
+                } else {
+                    result.setErrors(List.of("clientSaleId ya usado por otro usuario: " + key.getClientKey()));
+                }
+            }
+            lostRaces.forEach((clientKey, result) ->
+                    result.setErrors(List.of("clientSaleId en conflicto, reintente la venta: " + clientKey)));
+        }
+
+        return SaleBatchResponseDto.builder()
+                .received(requests.size())
+                .created(created)
+                .replayed(replayed)
+                .failed(requests.size() - created - replayed)
+                .results(results)
+                .build();
+    }
+
+    // Group commit del buffer write-behind: ventas de varios usuarios, ya validadas en el controlador,
+    // persistidas en una sola transacción. Si algo falla se revierte el grupo completo.
+    @Transactional
+    public List<SaleResponseDto> createSalesGroup(List<SaleRequestDto> requests, List<JwtPrincipal> principals) {
+        List<Sale> sales = new ArrayList<>(requests.size());
+        List<String> clientKeys = new ArrayList<>(requests.size());
+        Set<Long> checkedUsers = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SaleRequestDto request = requests.get(i);
+            JwtPrincipal principal = principals.get(i);
+            if (!canCreateIn(principal, request.getBranch())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No puedes crear ventas en otra sucursal");
+            }
+            if (checkedUsers.add(principal.userId())) {
+                requireExistingUser(principal);
+            }
+            sales.add(toSale(request, principal));
+            clientKeys.add(request.getClientSaleId());
+        }
+
+        List<Sale> savedSales = persistSales(sales, clientKeys);
+        List<SaleResponseDto> responses = new ArrayList<>(savedSales.size());
+        for (int i = 0; i < savedSales.size(); i++) {
+            String username = principals.get(i).username();
+            if (savedSales.get(i) != null) {
+                responses.add(mapToResponseDto(savedSales.get(i), username));
+            } else {
+                // Un reintento concurrente registró la clave primero: se responde con su venta
+                String clientKey = clientKeys.get(i);
+                responses.add(findReplay(clientKey, username)
+                        .orElseThrow(() -> new DuplicateSaleKeyException(clientKey)));
+            }
+        }
+        return responses;
+    }
+
+    // clientKeys va en paralelo a sales (null = venta sin clave de idempotencia). Devuelve las ventas
+    // guardadas en el mismo orden, con null donde la clave ya estaba registrada: esa venta se borra
+    // dentro de la transacción y no llega a rollups ni eventos.
+    private List<Sale> persistSales(List<Sale> sales, List<String> clientKeys) {
+        partitionService.ensurePartitions(sales.stream().map(Sale::getSoldAt).collect(Collectors.toSet()));
+        List<Sale> savedSales = new ArrayList<>(saleRepository.saveAll(sales));
+        saleRepository.flush();
+
+        Set<Integer> duplicates = registerKeys(savedSales, clientKeys);
+        if (!duplicates.isEmpty()) {
+            List<Long> duplicateIds = new ArrayList<>(duplicates.size());
+            for (int i : duplicates) {
+                duplicateIds.add(savedSales.get(i).getId());
+                savedSales.set(i, null);
+            }
+            saleRepository.deleteAllByIdInBatch(duplicateIds);
+        }
+        List<Sale> keptSales = savedSales.stream().filter(Objects::nonNull).toList();
+        rollupService.recordSales(keptSales);
+
+        // Un evento por (sucursal, día) tocado, no por venta
+        Set<String> touched = new HashSet<>();
+        for (Sale sale : keptSales) {
+            if (touched.add(sale.getBranch() + "|" + sale.getSoldAt().toLocalDate())) {
+                eventPublisher.publishEvent(new SaleChangedEvent(sale.getBranch(), sale.getSoldAt()));
+            }
+        }
+        return savedSales;
+    }
+
+    // Venta original asociada a la clave, si existe. El filtro de Bloom evita la consulta
+    // en el caso normal (clave nueva). No es readOnly a propósito: la clave puede haberse escrito
+    // hace milisegundos y tiene que leerse del primario, no de una réplica atrasada.
+    @Transactional
+    public Optional<SaleResponseDto> findReplay(String clientKey, String username) {
+        if (clientKey == null || !idempotencyKeyFilter.mightContain(clientKey)) {
+            return Optional.empty();
+        }
+        return idempotencyKeyRepository.findById(clientKey).map(key -> {
+            SaleResponseDto sale = saleRepository.findResponseById(key.getSaleId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                            "La venta original de la clave " + clientKey + " fue eliminada"));
+            if (!sale.getCreatedBy().equals(username)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "La clave " + clientKey + " pertenece a otro usuario");
+            }
+            return sale;
+        });
+    }
+
+    private void registerKey(String clientKey, Sale sale) {
+        int inserted = idempotencyKeyRepository.insertIfAbsent(clientKey, sale.getId(),
+                sale.getCreatedBy().getId(), LocalDateTime.now());
+        idempotencyKeyFilter.put(clientKey);
+        if (inserted == 0) {
+            // Un reintento concurrente ganó la carrera: revertir esta venta
+            throw new DuplicateSaleKeyException(clientKey);
+        }
+    }
+
+    // Índices de las ventas cuya clave ya estaba registrada (por otra petición o antes en la misma lista).
+    // Como insertIfAbsent, el conflicto no aborta la transacción: solo esas ventas quedan fuera.
+    private Set<Integer> registerKeys(List<Sale> savedSales, List<String> clientKeys) {
+        Map<String, Integer> indexByKey = new HashMap<>();
+        Set<Integer> duplicates = new HashSet<>();
+        for (int i = 0; i < savedSales.size(); i++) {
+            String clientKey = clientKeys.get(i);
+            if (clientKey != null && indexByKey.putIfAbsent(clientKey, i) != null) {
+                duplicates.add(i);
+            }
+        }
+        if (indexByKey.isEmpty()) {
+            return duplicates;
+        }
+
+        int size = indexByKey.size();
+        String[] keys = new String[size];
+        Long[] saleIds = new Long[size];
+        Long[] userIds = new Long[size];
+        int n = 0;
+        for (Map.Entry<String, Integer> entry : indexByKey.entrySet()) {
+            Sale sale = savedSales.get(entry.getValue());
+            keys[n] = entry.getKey();
+            saleIds[n] = sale.getId();
+            userIds[n] = sale.getCreatedBy().getId();
+            n++;
+        }
+        List<String> inserted = jdbcTemplate.queryForList(SaleIdempotencyKeyRepository.INSERT_ALL_IF_ABSENT_SQL,
+                new MapSqlParameterSource()
+                        .addValue("clientKeys", keys)
+                        .addValue("saleIds", saleIds)
+                        .addValue("userIds", userIds)
+                        .addValue("createdAt", LocalDateTime.now()),
+                String.class);
+
+        indexByKey.keySet().forEach(idempotencyKeyFilter::put);
+        if (inserted.size() < size) {
+            Set<String> insertedKeys = new HashSet<>(inserted);
+            indexByKey.forEach((clientKey, index) -> {
+                if (!insertedKeys.contains(clientKey)) {
+                    duplicates.add(index);
+                }
+            });
+        }
+        return duplicates;
+    }
+
+    private List<String> validateBatchItem(SaleRequestDto request, JwtPrincipal principal) {
+        if (request == null) {
+            return List.of("La venta no puede ser nula");
+        }
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<SaleRequestDto> violation : validator.validate(request)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        // Usuarios BRANCH solo pueden crear ventas en su sucursal
+        if (request.getBranch() != null && !canCreateIn(principal, request.getBranch())) {
+            errors.add(principal.branch() != null
+                    ? "Solo puedes crear ventas para tu sucursal: " + principal.branch()
+                    : "Tu usuario no tiene sucursal asignada");
+        }
+        return errors;
+    }
+
+    // Un BRANCH sin sucursal asignada no puede crear ventas en ninguna
+    private static boolean canCreateIn(JwtPrincipal principal, String branch) {
+        return principal.role() != UserRole.BRANCH
+                || principal.branch() != null && principal.branch().equals(branch);
+    }
 
+    // El token puede seguir vigente después de eliminar al usuario: sin esta verificación el INSERT
+    // fallaría por la FK de created_by con un 500. findByUsername está en caché (y se invalida al
+    // eliminar), así que en el caso normal no consulta la base.
+    private void requireExistingUser(JwtPrincipal principal) {
+        userRepository.findByUsername(principal.username())
+                .filter(user -> user.getId().equals(principal.userId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "El usuario del token ya no existe"));
+    }
+
+    // createdBy es una referencia sin cargar: el id viene del token y el INSERT solo necesita la FK
+    private Sale toSale(SaleRequestDto request, JwtPrincipal principal) {
         Sale sale = new Sale();
         sale.setSku(request.getSku());
         sale.setUnits(request.getUnits());
         sale.setPrice(request.getPrice());
         sale.setBranch(request.getBranch());
         sale.setSoldAt(request.getSoldAt() != null ? request.getSoldAt() : LocalDateTime.now());
-        sale.setCreatedBy(user);
-
-        Sale savedSale = saleRepository.save(sale);
-        return mapToResponseDto(savedSale);
+        sale.setCreatedBy(userRepository.getReferenceById(principal.userId()));
+        return sale;
     }
 
+    // Sin readOnly: PUT lo usa para validar permisos, a veces justo después de crear la venta,
+    // así que debe leer del primario aunque haya réplica
     public SaleResponseDto getSaleById(Long id) {
-        Sale sale = saleRepository.findById(id)
+        return saleRepository.findResponseById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Venta no encontrada"));
-        return mapToResponseDto(sale);
     }
 
+    @Transactional(readOnly = true)
     public Page<SaleResponseDto> getSales(String branch, LocalDate from, LocalDate to, Pageable pageable) {
-        LocalDateTime startDate = from != null ? from.atStartOfDay() : null;
-        LocalDateTime endDate = to != null ? to.atTime(LocalTime.MAX) : null;
-
-        Page<Sale> sales;
-        if (branch != null && startDate != null && endDate != null) {
-            sales = saleRepository.findByBranchAndSoldAtBetween(branch, startDate, endDate, pageable);
-        } else if (branch != null) {
-            sales = saleRepository.findByBranch(branch, pageable);
-        } else if (startDate != null && endDate != null) {
-            sales = saleRepository.findBySoldAtBetween(startDate, endDate, pageable);
-        } else {
-            sales = saleRepository.findAll(pageable);
+        SoldAtRange range = SoldAtRange.of(from, to);
+
+        // Una consulta de datos (proyección con JOIN a users) y una de conteo por página
+        if (range.isUnbounded()) {
+            return branch != null
+                    ? saleRepository.findResponsesByBranch(branch, pageable)
+                    : saleRepository.findAllResponses(pageable);
+        }
+        return branch != null
+                ? saleRepository.findResponsesByBranchAndSoldAtBetween(branch, range.lower(), range.upper(), pageable)
+                : saleRepository.findResponsesBySoldAtBetween(range.lower(), range.upper(), pageable);
+    }
+
+    // Página sin COUNT exacto: hasNext sale de pedir una fila de más. Con estimateTotal el total
+    // viene de las estadísticas del planner, acotado por lo que ya se sabe de la página actual.
+    @Transactional(readOnly = true)
+    public SalePageDto getSalesSlice(String branch, LocalDate from, LocalDate to, Pageable pageable,
+                                     boolean estimateTotal) {
+        SoldAtRange range = SoldAtRange.of(from, to);
+        Slice<SaleResponseDto> slice = saleRepository.findResponsesSlice(range.lower(), range.upper(), branch, pageable);
+
+        Long total = null;
+        if (estimateTotal) {
+            long seen = pageable.getOffset() + slice.getNumberOfElements();
+            total = slice.hasNext()
+                    ? Math.max(countEstimator.estimate(range.start(), range.end(), branch), seen + 1)
+                    : seen;
+        }
+
+        return SalePageDto.builder()
+                .content(slice.getContent())
+                .page(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .totalElements(total)
+                .countMode(estimateTotal ? COUNT_ESTIMATED : COUNT_NONE)
+                .build();
+    }
+
+    // Paginación keyset: costo constante por página sin importar la profundidad (sin OFFSET).
+    // Se pide una fila de más para saber si hay siguiente página sin contar.
+    @Transactional(readOnly = true)
+    public SaleCursorPageDto getSalesAfter(String branch, LocalDate from, LocalDate to, String cursor,
+                                           int size, boolean includeTotal) {
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size debe ser mayor que 0");
         }
+        SoldAtRange range = SoldAtRange.of(from, to);
+        SaleCursor position = cursor != null ? SaleCursor.decode(cursor) : SaleCursor.START;
+
+        List<SaleResponseDto> rows = branch != null
+                ? saleRepository.findResponsesByBranchAfter(branch, range.lower(), range.upper(),
+                        position.soldAt(), position.id(), Limit.of(size + 1))
+                : saleRepository.findResponsesAfter(range.lower(), range.upper(),
+                        position.soldAt(), position.id(), Limit.of(size + 1));
+        boolean hasNext = rows.size() > size;
+        List<SaleResponseDto> page = hasNext ? rows.subList(0, size) : rows;
 
-        return sales.map(this::mapToResponseDto);
+        return SaleCursorPageDto.builder()
+                .content(page)
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? SaleCursor.of(page.get(page.size() - 1)).encode() : null)
+                .totalElements(includeTotal ? saleRepository.countInRange(range.lower(), range.upper(), branch) : null)
+                .build();
     }
 
+    @Transactional
     public SaleResponseDto updateSale(Long id, SaleRequestDto request) {
+        // Antes de leer la venta: el DDL de la partición no puede esperar a un lock de esta transacción
+        if (request.getSoldAt() != null) {
+            partitionService.ensurePartitions(List.of(request.getSoldAt()));
+        }
         Sale existingSale = saleRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Venta no encontrada"));
 
+        // Revertir el aporte anterior al rollup antes de aplicar los nuevos valores
+        rollupService.removeSale(existingSale.getSku(), existingSale.getBranch(), existingSale.getSoldAt(),
+                existingSale.getUnits(), existingSale.getPrice());
+        eventPublisher.publishEvent(new SaleChangedEvent(existingSale.getBranch(), existingSale.getSoldAt()));
+
         existingSale.setSku(request.getSku());
         existingSale.setUnits(request.getUnits());
         existingSale.setPrice(request.getPrice());
@@ -83,14 +474,20 @@ public class SaleService {
         }
 
         Sale updatedSale = saleRepository.save(existingSale);
+        rollupService.recordSale(updatedSale.getSku(), updatedSale.getBranch(), updatedSale.getSoldAt(),
+                updatedSale.getUnits(), updatedSale.getPrice());
+        eventPublisher.publishEvent(new SaleChangedEvent(updatedSale.getBranch(), updatedSale.getSoldAt()));
         return mapToResponseDto(updatedSale);
     }
 
+    @Transactional
     public void deleteSale(Long id) {
-        if (!saleRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Venta no encontrada");
-        }
-        saleRepository.deleteById(id);
+        Sale sale = saleRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Venta no encontrada"));
+        rollupService.removeSale(sale.getSku(), sale.getBranch(), sale.getSoldAt(),
+                sale.getUnits(), sale.getPrice());
+        saleRepository.delete(sale);
+        eventPublisher.publishEvent(new SaleChangedEvent(sale.getBranch(), sale.getSoldAt()));
     }
 
     public List<Sale> findSalesByDateRangeAndBranch(LocalDate from, LocalDate to, String branch) {
@@ -110,6 +507,10 @@ public class SaleService {
     }
 
     private SaleResponseDto mapToResponseDto(Sale sale) {
+        return mapToResponseDto(sale, sale.getCreatedBy().getUsername());
+    }
+
+    private SaleResponseDto mapToResponseDto(Sale sale, String createdBy) {
         return SaleResponseDto.builder()
                 .id(sale.getId())
                 .sku(sale.getSku())
@@ -117,7 +518,32 @@ public class SaleService {
                 .price(sale.getPrice())
                 .branch(sale.getBranch())
                 .soldAt(sale.getSoldAt())
-                .createdBy(sale.getCreatedBy().getUsername())
+                .createdBy(createdBy)
                 .build();
     }
+
+    // Rango de fechas de GET /sales, igual para los tres modos de paginación: from y to son opcionales
+    // e independientes, y el extremo que falta queda abierto
+    private record SoldAtRange(LocalDateTime start, LocalDateTime end) {
+
+        private static final LocalDateTime OPEN_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+        static SoldAtRange of(LocalDate from, LocalDate to) {
+            return new SoldAtRange(from != null ? from.atStartOfDay() : null,
+                    to != null ? to.atTime(LocalTime.MAX) : null);
+        }
+
+        boolean isUnbounded() {
+            return start == null && end == null;
+        }
+
+        // Límites para las consultas BETWEEN: el fin abierto coincide con el cursor inicial del keyset
+        LocalDateTime lower() {
+            return start != null ? start : OPEN_START;
+        }
+
+        LocalDateTime upper() {
+            return end != null ? end : SaleCursor.START.soldAt();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package org.example.hack1.sale.domain;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.hack1.sale.dto.SaleRequestDto;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Modo write-behind para POST /sales: las ventas aceptadas se encolan y un único hilo las persiste
+// en group commits (cada max-group-size filas o max-wait, lo que ocurra primero). Un commit por grupo
+// en lugar de uno por request.
+//
+// Garantía de durabilidad (sales.write-behind.ack):
+//  - durable (por defecto): el cliente recibe 201 con el id solo cuando su grupo ya hizo commit.
+//  - accepted: el cliente recibe 202 al encolar; si el proceso cae antes del flush, la venta se pierde.
+@Slf4j
+@Component
+public class SaleWriteBehindBuffer {
+
+    public static final String ACK_DURABLE = "durable";
+    public static final String ACK_ACCEPTED = "accepted";
+
+    private final SaleService saleService;
+    private final boolean enabled;
+    private final boolean durableAck;
+    private final int maxGroupSize;
+    private final long maxWaitNanos;
+    private final Duration ackTimeout;
+    private final BlockingQueue<PendingSale> queue;
+    private final DistributionSummary groupSizes;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public SaleWriteBehindBuffer(SaleService saleService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${sales.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${sales.write-behind.ack:durable}") String ack,
+                                 @Value("${sales.write-behind.capacity:10000}") int capacity,
+                                 @Value("${sales.write-behind.max-group-size:200}") int maxGroupSize,
+                                 @Value("${sales.write-behind.max-wait:10ms}") Duration maxWait,
+                                 @Value("${sales.write-behind.ack-timeout:5s}") Duration ackTimeout) {
+        if (!ACK_DURABLE.equals(ack) && !ACK_ACCEPTED.equals(ack)) {
+            throw new IllegalArgumentException("sales.write-behind.ack debe ser 'durable' o 'accepted': " + ack);
+        }
+        this.saleService = saleService;
+        this.enabled = enabled;
+        this.durableAck = ACK_DURABLE.equals(ack);
+        this.maxGroupSize = maxGroupSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.ackTimeout = ackTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.groupSizes = DistributionSummary.builder("sales.write_behind.group.size")
+                .description("Ventas persistidas por group commit")
+                .register(meterRegistry);
+        Gauge.builder("sales.write_behind.queue", queue, BlockingQueue::size)
+                .description("Ventas encoladas pendientes de commit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "sales-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind de ventas activo (ack={}, grupo={}, espera={}ns)",
+                durableAck ? ACK_DURABLE : ACK_ACCEPTED, maxGroupSize, maxWaitNanos);
+    }
+
+    // Deja de aceptar ventas y vacía lo encolado antes de que se cierre el DataSource
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(ackTimeout.toMillis() + 1000);
+        if (!queue.isEmpty()) {
+            log.error("Write-behind detenido con {} ventas sin persistir", queue.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDurableAck() {
+        return durableAck;
+    }
+
+    // El request ya fue validado (@Valid y permisos de sucursal) en el controlador
+    public CompletableFuture<SaleResponseDto> submit(SaleRequestDto request, JwtPrincipal principal) {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "El buffer de ventas no está activo");
+        }
+        PendingSale pending = new PendingSale(request, principal, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Demasiadas ventas pendientes, reintenta en unos segundos");
+        }
+        return pending.result;
+    }
+
+    // Espera a que el grupo de la venta haga commit (modo durable)
+    public SaleResponseDto await(CompletableFuture<SaleResponseDto> result) {
+        try {
+            return result.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // La venta sigue en cola: puede persistirse después, el cliente no debe asumir que falló
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "La venta sigue pendiente de confirmación");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Operación interrumpida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingSale> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSale first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxGroupSize) {
+                    queue.drainTo(group, maxGroupSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() >= maxGroupSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingSale next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                flush(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el flusher de ventas", e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingSale> group) {
+        groupSizes.record(group.size());
+        List<SaleRequestDto> requests = new ArrayList<>(group.size());
+        List<JwtPrincipal> principals = new ArrayList<>(group.size());
+        for (PendingSale pending : group) {
+            requests.add(pending.request);
+            principals.add(pending.principal);
+        }
+
+        try {
+            List<SaleResponseDto> saved = saleService.createSalesGroup(requests, principals);
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result.complete(saved.get(i));
+            }
+        } catch (RuntimeException groupFailure) {
+            // Una venta inválida revierte todo el grupo: se reintenta una a una para aislarla
+            log.warn("Falló el group commit de {} ventas, reintentando individualmente", group.size(), groupFailure);
+            for (PendingSale pending : group) {
+                try {
+                    pending.result.complete(saleService.createSale(pending.request, pending.principal));
+                } catch (DuplicateSaleKeyException e) {
+                    pending.result.complete(saleService.findReplay(e.getClientKey(), pending.principal.username())
+                            .orElseThrow(() -> e));
+                } catch (RuntimeException e) {
+                    if (!durableAck) {
+                        log.error("Venta aceptada descartada (sku={}, branch={})",
+                                pending.request.getSku(), pending.request.getBranch(), e);
+                    }
+                    pending.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private record PendingSale(SaleRequestDto request, JwtPrincipal principal, CompletableFuture<SaleResponseDto> result) {
+    }
+}
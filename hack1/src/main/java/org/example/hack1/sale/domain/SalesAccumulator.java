@@ -0,0 +1,149 @@
+package org.example.hack1.sale.domain;
+
+import org.example.hack1.sale.dto.SalesGroupView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Acumulador de una sola pasada: totales + unidades por SKU y por sucursal.
+// Modo exacto (por defecto): SKU y sucursal se codifican como ids enteros y los conteos viven en
+// arreglos long[], así que agregar una fila no crea objetos (salvo la primera vez que aparece una clave).
+// Modo top-K (sketchCapacity > 0): los conteos por clave van a un SpaceSavingSketch de memoria fija.
+public class SalesAccumulator {
+
+    public static final int DEFAULT_TOP_N = 5;
+
+    private final KeyDictionary skus = new KeyDictionary();
+    private final KeyDictionary branches = new KeyDictionary();
+    private long[] unitsBySku = new long[16];
+    private long[] unitsByBranch = new long[8];
+    private final SpaceSavingSketch skuSketch;
+    private final SpaceSavingSketch branchSketch;
+    private long totalUnits;
+    private double totalRevenue;
+
+    public SalesAccumulator() {
+        this(0);
+    }
+
+    public SalesAccumulator(int sketchCapacity) {
+        this.skuSketch = sketchCapacity > 0 ? new SpaceSavingSketch(sketchCapacity) : null;
+        this.branchSketch = sketchCapacity > 0 ? new SpaceSavingSketch(sketchCapacity) : null;
+    }
+
+    public void add(String sku, String branch, long units, double revenue) {
+        totalUnits += units;
+        totalRevenue += revenue;
+        if (skuSketch != null) {
+            skuSketch.add(sku, units);
+            branchSketch.add(branch, units);
+            return;
+        }
+
+        int skuId = skus.idOf(sku);
+        int branchId = branches.idOf(branch);
+        unitsBySku = ensureCapacity(unitsBySku, skuId);
+        unitsByBranch = ensureCapacity(unitsByBranch, branchId);
+
+        unitsBySku[skuId] += units;
+        unitsByBranch[branchId] += units;
+    }
+
+    public void add(SalesGroupView group) {
+        add(group.getSku(), group.getBranch(), group.getUnits(), group.getRevenue());
+    }
+
+    // Combina otro acumulador (p. ej. de otra partición) en este
+    public SalesAccumulator merge(SalesAccumulator other) {
+        totalUnits += other.totalUnits;
+        totalRevenue += other.totalRevenue;
+        if (skuSketch != null) {
+            skuSketch.merge(other.skuSketch);
+            branchSketch.merge(other.branchSketch);
+            return this;
+        }
+
+        for (int id = 0; id < other.skus.size(); id++) {
+            int skuId = skus.idOf(other.skus.keyOf(id));
+            unitsBySku = ensureCapacity(unitsBySku, skuId);
+            unitsBySku[skuId] += other.unitsBySku[id];
+        }
+        for (int id = 0; id < other.branches.size(); id++) {
+            int branchId = branches.idOf(other.branches.keyOf(id));
+            unitsByBranch = ensureCapacity(unitsByBranch, branchId);
+            unitsByBranch[branchId] += other.unitsByBranch[id];
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return skuSketch != null ? skuSketch.isEmpty() : skus.size() == 0;
+    }
+
+    public SalesAggregationService.SalesAggregates toAggregates() {
+        return toAggregates(DEFAULT_TOP_N);
+    }
+
+    public SalesAggregationService.SalesAggregates toAggregates(int topN) {
+        if (isEmpty()) {
+            return new SalesAggregationService.SalesAggregates(0, 0.0, "N/A", "N/A");
+        }
+        List<HeavyHitter> topSkus = skuSketch != null ? skuSketch.top(topN) : top(skus, unitsBySku, topN);
+        List<HeavyHitter> topBranches = branchSketch != null
+                ? branchSketch.top(topN)
+                : top(branches, unitsByBranch, topN);
+        return new SalesAggregationService.SalesAggregates(
+                Math.toIntExact(totalUnits),
+                totalRevenue,
+                topSkus.get(0).key(),
+                topBranches.get(0).key(),
+                topSkus,
+                topBranches
+        );
+    }
+
+    private static List<HeavyHitter> top(KeyDictionary keys, long[] units, int n) {
+        List<HeavyHitter> result = new ArrayList<>(keys.size());
+        for (int id = 0; id < keys.size(); id++) {
+            result.add(new HeavyHitter(keys.keyOf(id), units[id], 0));
+        }
+        result.sort(Comparator.comparingLong(HeavyHitter::units).reversed());
+        return result.subList(0, Math.min(n, result.size()));
+    }
+
+    private static long[] ensureCapacity(long[] values, int id) {
+        return id < values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, id + 1));
+    }
+
+    // Diccionario String -> id denso (0, 1, 2, ...)
+    private static final class KeyDictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] keys = new String[16];
+
+        int idOf(String key) {
+            Integer id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            int newId = ids.size();
+            if (newId == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            keys[newId] = key;
+            ids.put(key, newId);
+            return newId;
+        }
+
+        String keyOf(int id) {
+            return keys[id];
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+}
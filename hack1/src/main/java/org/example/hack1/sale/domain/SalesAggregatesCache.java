@@ -0,0 +1,126 @@
+package org.example.hack1.sale.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Caché de SalesAggregates por (from, to, branch). Se invalida solo lo que cubre la venta modificada.
+// Es local a cada nodo: con varias instancias, otro nodo puede servir datos viejos hasta el TTL.
+// Con réplica de lectura se invalida de nuevo pasado datasource.replica.max-lag (como SalesVersionTracker):
+// un reporte calculado desde la réplica antes de que aplicara la venta no queda guardado hasta el TTL.
+@Component
+public class SalesAggregatesCache {
+
+    private final Cache<Key, SalesAggregationService.SalesAggregates> cache;
+    // Cálculos en curso: una escritura marca como viejos solo los que cubren su (día, sucursal), así
+    // una venta de otra sucursal u otro día no impide guardar un reporte largo
+    private final Set<Load> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter invalidations;
+    private final TaskScheduler taskScheduler;
+    private final Duration replicaMaxLag;
+
+    public SalesAggregatesCache(MeterRegistry meterRegistry,
+                                TaskScheduler taskScheduler,
+                                @Value("${datasource.replica.url:}") String replicaUrl,
+                                @Value("${datasource.replica.max-lag:5s}") Duration replicaMaxLag,
+                                @Value("${sales.aggregates.cache.max-size:1000}") long maxSize,
+                                @Value("${sales.aggregates.cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Expone cache.gets{result=hit|miss}, cache.evictions, cache.size en /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sales.aggregates");
+        this.invalidations = Counter.builder("sales.aggregates.cache.invalidations")
+                .description("Entradas invalidadas por escrituras de ventas")
+                .register(meterRegistry);
+        this.taskScheduler = taskScheduler;
+        this.replicaMaxLag = replicaUrl.isEmpty() ? Duration.ZERO : replicaMaxLag;
+    }
+
+    public SalesAggregationService.SalesAggregates get(LocalDate from, LocalDate to, String branch,
+                                                       Supplier<SalesAggregationService.SalesAggregates> loader) {
+        Key key = new Key(from, to, branch);
+        SalesAggregationService.SalesAggregates cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // No se calcula dentro del caché para no bloquear otras claves durante un reporte largo.
+        // Si hubo una escritura que cubre la clave mientras se calculaba, el resultado puede estar
+        // viejo: no se guarda.
+        Load load = new Load(key);
+        inFlight.add(load);
+        try {
+            SalesAggregationService.SalesAggregates computed = loader.get();
+            if (!load.stale) {
+                cache.put(key, computed);
+                // invalidate marca los cálculos en curso antes de borrar entradas: si la marca llegó
+                // después de este put, el borrado también, y si llegó antes, se ve aquí
+                if (load.stale) {
+                    cache.invalidate(key);
+                }
+            }
+            return computed;
+        } finally {
+            inFlight.remove(load);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaleChanged(SaleChangedEvent event) {
+        LocalDate day = event.getSoldAt().toLocalDate();
+        invalidate(day, event.getBranch());
+        if (replicaMaxLag.isPositive() && taskScheduler != null) {
+            taskScheduler.schedule(() -> invalidate(day, event.getBranch()), Instant.now().plus(replicaMaxLag));
+        }
+    }
+
+    private void invalidate(LocalDate day, String branch) {
+        for (Load load : inFlight) {
+            if (load.key.covers(day, branch)) {
+                load.stale = true;
+            }
+        }
+        cache.asMap().keySet().removeIf(key -> {
+            boolean covers = key.covers(day, branch);
+            if (covers) {
+                invalidations.increment();
+            }
+            return covers;
+        });
+    }
+
+    // Por identidad: dos cálculos concurrentes de la misma clave se marcan por separado
+    private static final class Load {
+        private final Key key;
+        private volatile boolean stale;
+
+        private Load(Key key) {
+            this.key = key;
+        }
+    }
+
+    private record Key(LocalDate from, LocalDate to, String branch) {
+        boolean covers(LocalDate day, String saleBranch) {
+            return !day.isBefore(from) && !day.isAfter(to)
+                    && (branch == null || Objects.equals(branch, saleBranch));
+        }
+    }
+}
@@ -1,62 +1,131 @@
 package org.example.hack1.sale.domain;
 
-import lombok.RequiredArgsConstructor;
+import org.example.hack1.sale.dto.SalesGroupView;
 import org.example.hack1.sale.repo.SaleRepository;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 public class SalesAggregationService {
 
     private final SaleRepository saleRepository;
+    private final SalesDailyRollupRepository rollupRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ForkJoinPool salesAggregationPool;
+    private final SalesAggregatesCache aggregatesCache;
+    private final int partitionDays;
+    private final int topN;
+    private final int sketchCapacity;
+
+    public SalesAggregationService(SaleRepository saleRepository,
+                                   SalesDailyRollupRepository rollupRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ForkJoinPool salesAggregationPool,
+                                   SalesAggregatesCache aggregatesCache,
+                                   @Value("${sales.aggregation.partition-days:7}") int partitionDays,
+                                   @Value("${sales.aggregation.top-n:10}") int topN,
+                                   @Value("${sales.aggregation.sketch-capacity:0}") int sketchCapacity) {
+        this.saleRepository = saleRepository;
+        this.rollupRepository = rollupRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.salesAggregationPool = salesAggregationPool;
+        this.aggregatesCache = aggregatesCache;
+        this.partitionDays = Math.max(1, partitionDays);
+        this.topN = Math.max(1, topN);
+        this.sketchCapacity = sketchCapacity;
+    }
+
+    // Entradas que trae cada top del reporte: GET /sales/top no puede pedir más
+    public int getTopN() {
+        return topN;
+    }
 
     public SalesAggregates calculateAggregates(LocalDate from, LocalDate to, String branch) {
-        List<Sale> sales = saleRepository.findSalesInDateRange(
-                from.atStartOfDay(),
-                to.atTime(23, 59, 59)
-        );
-
-        // Filtrar por branch si se especifica
-        if (branch != null) {
-            sales = sales.stream()
-                    .filter(sale -> branch.equals(sale.getBranch()))
-                    .collect(Collectors.toList());
+        return aggregatesCache.get(from, to, branch, () -> computeAggregates(from, to, branch));
+    }
+
+    private SalesAggregates computeAggregates(LocalDate from, LocalDate to, String branch) {
+        LocalDate today = LocalDate.now();
+        List<Supplier<SalesAccumulator>> partitions = new ArrayList<>();
+
+        // Días completos anteriores a hoy: se leen del rollup diario, en bloques de partitionDays
+        LocalDate lastClosedDay = today.minusDays(1);
+        if (!from.isAfter(lastClosedDay)) {
+            LocalDate rollupTo = to.isBefore(lastClosedDay) ? to : lastClosedDay;
+            for (LocalDate start = from; !start.isAfter(rollupTo); start = start.plusDays(partitionDays)) {
+                LocalDate partitionFrom = start;
+                LocalDate candidateTo = start.plusDays(partitionDays - 1);
+                LocalDate partitionTo = candidateTo.isBefore(rollupTo) ? candidateTo : rollupTo;
+                partitions.add(() -> aggregateRollup(partitionFrom, partitionTo, branch));
+            }
+        }
+
+        // El día en curso (y posteriores) todavía cambia: se agrega sobre filas crudas
+        if (!to.isBefore(today)) {
+            LocalDate rawFrom = from.isAfter(today) ? from : today;
+            partitions.add(() -> aggregateRaw(rawFrom, to, branch));
         }
 
-        if (sales.isEmpty()) {
-            return new SalesAggregates(0, 0.0, "N/A", "N/A");
+        if (partitions.size() == 1) {
+            return partitions.get(0).get().toAggregates(topN);
         }
 
-        // Calcular total units
-        int totalUnits = sales.stream().mapToInt(Sale::getUnits).sum();
-
-        // Calcular total revenue
-        double totalRevenue = sales.stream()
-                .mapToDouble(sale -> sale.getUnits() * sale.getPrice())
-                .sum();
-
-        // Encontrar top SKU
-        String topSku = sales.stream()
-                .collect(Collectors.groupingBy(Sale::getSku, Collectors.summingInt(Sale::getUnits)))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
-
-        // Encontrar top branch
-        String topBranch = sales.stream()
-                .collect(Collectors.groupingBy(Sale::getBranch, Collectors.summingInt(Sale::getUnits)))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
-
-        return new SalesAggregates(totalUnits, totalRevenue, topSku, topBranch);
+        // Cada partición corre en el pool acotado con su propia transacción/conexión
+        List<CompletableFuture<SalesAccumulator>> futures = partitions.stream()
+                .map(partition -> CompletableFuture.supplyAsync(partition, salesAggregationPool))
+                .toList();
+
+        SalesAccumulator result = new SalesAccumulator(sketchCapacity);
+        try {
+            for (CompletableFuture<SalesAccumulator> future : futures) {
+                result.merge(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return result.toAggregates(topN);
+    }
+
+    private SalesAccumulator aggregateRollup(LocalDate from, LocalDate to, String branch) {
+        // Las lecturas se consumen como cursores: la transacción mantiene abierta la conexión
+        return readOnlyTransaction.execute(status -> {
+            SalesAccumulator accumulator = new SalesAccumulator(sketchCapacity);
+            try (Stream<SalesGroupView> groups = rollupRepository.aggregateBySkuAndBranch(from, to, branch)) {
+                groups.forEach(accumulator::add);
+            }
+            return accumulator;
+        });
+    }
+
+    private SalesAccumulator aggregateRaw(LocalDate from, LocalDate to, String branch) {
+        return readOnlyTransaction.execute(status -> {
+            SalesAccumulator accumulator = new SalesAccumulator(sketchCapacity);
+            try (Stream<SalesGroupView> groups = saleRepository.aggregateBySkuAndBranch(
+                    from.atStartOfDay(),
+                    to.atTime(23, 59, 59),
+                    branch
+            )) {
+                groups.forEach(accumulator::add);
+            }
+            return accumulator;
+        });
     }
 
     public static class SalesAggregates {
@@ -64,12 +133,21 @@ public class SalesAggregationService {
         private final double totalRevenue;
         private final String topSku;
         private final String topBranch;
+        private final List<HeavyHitter> topSkus;
+        private final List<HeavyHitter> topBranches;
 
         public SalesAggregates(int totalUnits, double totalRevenue, String topSku, String topBranch) {
+            this(totalUnits, totalRevenue, topSku, topBranch, List.of(), List.of());
+        }
+
+        public SalesAggregates(int totalUnits, double totalRevenue, String topSku, String topBranch,
+                               List<HeavyHitter> topSkus, List<HeavyHitter> topBranches) {
             this.totalUnits = totalUnits;
             this.totalRevenue = totalRevenue;
             this.topSku = topSku;
             this.topBranch = topBranch;
+            this.topSkus = List.copyOf(topSkus);
+            this.topBranches = List.copyOf(topBranches);
         }
 
         // Getters
@@ -77,5 +155,7 @@ public class SalesAggregationService {
         public double getTotalRevenue() { return totalRevenue; }
         public String getTopSku() { return topSku; }
         public String getTopBranch() { return topBranch; }
+        public List<HeavyHitter> getTopSkus() { return topSkus; }
+        public List<HeavyHitter> getTopBranches() { return topBranches; }
     }
 }
\ No newline at end of file
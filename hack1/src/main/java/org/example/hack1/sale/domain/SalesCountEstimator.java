@@ -0,0 +1,54 @@
+package org.example.hack1.sale.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Conteo aproximado de ventas a partir de las estadísticas de Postgres, sin recorrer la tabla:
+//  - sin filtros: suma de reltuples de las particiones (lo que dejó el último ANALYZE/autovacuum)
+//  - con filtros: filas estimadas por el planner (EXPLAIN, no se ejecuta la consulta)
+@Component
+@RequiredArgsConstructor
+public class SalesCountEstimator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public long estimate(LocalDateTime start, LocalDateTime end, String branch) {
+        if (start == null && end == null && branch == null) {
+            // reltuples es -1 en particiones nunca analizadas
+            Long rows = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)::bigint FROM pg_inherits i " +
+                            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'sales'::regclass",
+                    Long.class);
+            return rows != null ? rows : 0;
+        }
+
+        StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM sales WHERE true");
+        List<Object> args = new ArrayList<>();
+        if (start != null) {
+            sql.append(" AND sold_at >= ?");
+            args.add(start);
+        }
+        if (end != null) {
+            sql.append(" AND sold_at <= ?");
+            args.add(end);
+        }
+        if (branch != null) {
+            sql.append(" AND branch = ?");
+            args.add(branch);
+        }
+        String plan = jdbcTemplate.queryForObject(sql.toString(), String.class, args.toArray());
+        try {
+            return objectMapper.readTree(plan).get(0).get("Plan").get("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo leer el plan de conteo", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Totales diarios por (día, sucursal, sku), mantenidos con deltas desde SaleService
+@Entity
+@Table(name = "sales_daily_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollup {
+    @EmbeddedId
+    private SalesDailyRollupId id;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false)
+    private Double revenue;
+}
@@ -0,0 +1,27 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class SalesDailyRollupId implements Serializable {
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private String branch;
+
+    @Column(nullable = false)
+    private String sku;
+}
@@ -0,0 +1,25 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Totales por (hora, sucursal) para las series por hora, mantenidos con deltas desde SaleService
+@Entity
+@Table(name = "sales_hourly_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesHourlyRollup {
+    @EmbeddedId
+    private SalesHourlyRollupId id;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false)
+    private Double revenue;
+}
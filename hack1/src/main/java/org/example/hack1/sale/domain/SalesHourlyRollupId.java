@@ -0,0 +1,24 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class SalesHourlyRollupId implements Serializable {
+    @Column(name = "bucket_hour", nullable = false)
+    private LocalDateTime hour;
+
+    @Column(nullable = false)
+    private String branch;
+}
@@ -0,0 +1,224 @@
+package org.example.hack1.sale.domain;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.hack1.sale.domain.event.AllSalesChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Mantiene las particiones mensuales de sales (sales_pYYYY_MM, rango [día 1, día 1 del mes siguiente)):
+// las crea con meses de anticipación y, para ventas con fecha pasada (importaciones, lotes con soldAt
+// viejo), bajo demanda antes de insertarlas. Si hay retención configurada, separa las viejas al esquema
+// de archivo. Los reportes de meses archivados siguen funcionando porque salen de los rollups.
+@Slf4j
+@Service
+public class SalesPartitionService {
+
+    private static final String PREFIX = "sales_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String LOCK_TIMEOUT = "2s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String archiveSchema;
+    // Meses con partición conocida: el camino normal de una venta es una búsqueda en este set
+    private final Set<YearMonth> knownMonths = ConcurrentHashMap.newKeySet();
+
+    public SalesPartitionService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${sales.partitions.enabled:true}") boolean enabled,
+                                 @Value("${sales.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${sales.partitions.retention-months:0}") int retentionMonths,
+                                 @Value("${sales.partitions.archive-schema:sales_archive}") String archiveSchema) {
+        // Se concatena en DDL: solo identificadores simples
+        if (!archiveSchema.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("sales.partitions.archive-schema inválido: " + archiveSchema);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        // Transacción propia: el DDL no debe quedar dentro (ni retener locks) de la transacción de la venta
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveSchema = archiveSchema;
+    }
+
+    // Antes de aceptar tráfico: si el mes actual no tuviera partición, sus ventas caerían en sales_default
+    @PostConstruct
+    public void init() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${sales.partitions.maintenance-cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        // Filas que igual terminaron en sales_default (p. ej. insertadas por fuera de la aplicación)
+        for (YearMonth month : monthsInDefault()) {
+            createPartition(month);
+        }
+        if (retentionMonths > 0) {
+            archivePartitionsBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    // Garantiza la partición de cada mes antes de insertar ventas con esas fechas. Las de meses ya
+    // archivados vuelven a tener partición y el próximo mantenimiento las archiva junto a las demás.
+    public void ensurePartitions(Collection<LocalDateTime> soldAts) {
+        if (!enabled) {
+            return;
+        }
+        for (LocalDateTime soldAt : soldAts) {
+            YearMonth month = YearMonth.from(soldAt);
+            if (!knownMonths.contains(month)) {
+                createPartition(month);
+            }
+        }
+    }
+
+    // Si sales_default ya tiene filas del mes, CREATE ... PARTITION OF fallaría: se crea la tabla suelta,
+    // se mueven las filas y se adjunta, todo en una transacción con sales_default bloqueada
+    public void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (exists(partition)) {
+                    return;
+                }
+                // Con lecturas largas sobre sales el DDL esperaría (y frenaría a las demás): se desiste
+                // y la venta cae en sales_default hasta el próximo intento
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                jdbcTemplate.execute("LOCK TABLE sales_default IN EXCLUSIVE MODE");
+                Boolean pending = jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM sales_default WHERE sold_at >= ? AND sold_at < ?)",
+                        Boolean.class, from, to);
+                if (!Boolean.TRUE.equals(pending)) {
+                    jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF sales " + bounds);
+                    return;
+                }
+                jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE sales INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int moved = jdbcTemplate.update("INSERT INTO " + partition +
+                        " SELECT * FROM sales_default WHERE sold_at >= ? AND sold_at < ?", from, to);
+                jdbcTemplate.update("DELETE FROM sales_default WHERE sold_at >= ? AND sold_at < ?", from, to);
+                jdbcTemplate.execute("ALTER TABLE sales ATTACH PARTITION " + partition + " " + bounds);
+                log.info("Partición {} creada con {} ventas movidas desde sales_default", partition, moved);
+            });
+            knownMonths.add(month);
+        } catch (DataAccessException e) {
+            // Otra instancia la creó al mismo tiempo o venció lock_timeout: se reintenta en la próxima
+            // venta o mantenimiento
+            log.warn("No se pudo crear la partición {}: {}", partition, e.getMessage());
+        }
+    }
+
+    // Separa (DETACH) las particiones anteriores a firstKept y las mueve al esquema de archivo.
+    // La tabla queda intacta para consultarla o exportarla; dejar de verla en sales es lo que acelera.
+    // Si el mes ya estaba archivado (ventas con fecha pasada que lo recrearon), se agregan sus filas.
+    public List<String> archivePartitionsBefore(YearMonth firstKept) {
+        List<String> archived = new ArrayList<>();
+        for (String partition : listPartitions()) {
+            YearMonth month = monthOf(partition);
+            if (month == null || !month.isBefore(firstKept)) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // DETACH toma ACCESS EXCLUSIVE sobre sales: en cola detrás de una lectura larga
+                    // (p. ej. una exportación) frenaría todos los INSERT de ventas hasta que termine
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                    jdbcTemplate.execute("ALTER TABLE sales DETACH PARTITION " + partition);
+                    if (exists(archiveSchema + "." + partition)) {
+                        jdbcTemplate.execute("INSERT INTO " + archiveSchema + "." + partition + " SELECT * FROM " + partition);
+                        jdbcTemplate.execute("DROP TABLE " + partition);
+                    } else {
+                        jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+                    }
+                });
+                knownMonths.remove(month);
+                archived.add(partition);
+                log.info("Partición {} archivada en {}", partition, archiveSchema);
+            } catch (DataAccessException e) {
+                // Las demás particiones chocarían con el mismo lock: se reintenta en el próximo mantenimiento
+                log.warn("No se pudo archivar la partición {}, se reintenta en el próximo mantenimiento: {}",
+                        partition, e.getMessage());
+                break;
+            }
+        }
+        // Listados, conteos y exportaciones de esos meses cambian en todas las sucursales (los
+        // reportes no: salen de los rollups)
+        if (!archived.isEmpty()) {
+            eventPublisher.publishEvent(new AllSalesChangedEvent("particiones archivadas: " + archived));
+        }
+        return archived;
+    }
+
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'sales'::regclass ORDER BY c.relname",
+                String.class);
+    }
+
+    private Set<YearMonth> monthsInDefault() {
+        Set<YearMonth> months = new TreeSet<>();
+        for (Timestamp month : jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', sold_at) FROM sales_default", Timestamp.class)) {
+            months.add(YearMonth.from(month.toLocalDateTime()));
+        }
+        return months;
+    }
+
+    private boolean exists(String table) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    // null para sales_default o cualquier tabla que no siga la convención
+    static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.hack1.sale.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.example.hack1.sale.repo.SalesHourlyRollupRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesHourlyRollupRepository hourlyRollupRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Se llama dentro de la misma transacción que guarda la venta
+    public void recordSale(String sku, String branch, LocalDateTime soldAt, int units, double price) {
+        applyDelta(sku, branch, soldAt, units, units * price);
+    }
+
+    public void removeSale(String sku, String branch, LocalDateTime soldAt, int units, double price) {
+        applyDelta(sku, branch, soldAt, -units, -(units * price));
+    }
+
+    // Variante para lotes: suma los deltas por clave en memoria y aplica un upsert por clave
+    // distinta con batching JDBC, en vez de dos sentencias por venta.
+    // Invariante de orden de locks: cada escritor (ventas sueltas, lotes, importaciones, write-behind)
+    // bloquea primero filas del rollup diario y después del horario, y dentro de cada tabla en orden
+    // (día|hora, sucursal, sku). Dos lotes concurrentes con las mismas claves en distinto orden en el
+    // cuerpo del request esperan uno al otro en vez de caer en un deadlock.
+    public void recordSales(Collection<Sale> sales) {
+        Map<DailyKey, Delta> daily = new TreeMap<>(DailyKey.ORDER);
+        Map<HourlyKey, Delta> hourly = new TreeMap<>(HourlyKey.ORDER);
+        for (Sale sale : sales) {
+            double revenue = sale.getUnits() * sale.getPrice();
+            addDelta(daily, new DailyKey(sale.getSoldAt().toLocalDate(), sale.getBranch(), sale.getSku()),
+                    sale.getUnits(), revenue);
+            addDelta(hourly, new HourlyKey(sale.getSoldAt().truncatedTo(ChronoUnit.HOURS), sale.getBranch()),
+                    sale.getUnits(), revenue);
+        }
+
+        jdbcTemplate.batchUpdate(SalesDailyRollupRepository.UPSERT_SQL, daily.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("day", entry.getKey().day())
+                        .addValue("branch", entry.getKey().branch())
+                        .addValue("sku", entry.getKey().sku())
+                        .addValue("units", entry.getValue().units)
+                        .addValue("revenue", entry.getValue().revenue))
+                .toArray(SqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(SalesHourlyRollupRepository.UPSERT_SQL, hourly.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("hour", entry.getKey().hour())
+                        .addValue("branch", entry.getKey().branch())
+                        .addValue("units", entry.getValue().units)
+                        .addValue("revenue", entry.getValue().revenue))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private static <K> void addDelta(Map<K, Delta> deltas, K key, long units, double revenue) {
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.units += units;
+        delta.revenue += revenue;
+    }
+
+    private void applyDelta(String sku, String branch, LocalDateTime soldAt, long units, double revenue) {
+        rollupRepository.applyDelta(soldAt.toLocalDate(), branch, sku, units, revenue);
+        hourlyRollupRepository.applyDelta(soldAt.truncatedTo(ChronoUnit.HOURS), branch, units, revenue);
+    }
+
+    private record DailyKey(LocalDate day, String branch, String sku) {
+        private static final Comparator<DailyKey> ORDER = Comparator.comparing(DailyKey::day)
+                .thenComparing(DailyKey::branch)
+                .thenComparing(DailyKey::sku);
+    }
+
+    private record HourlyKey(LocalDateTime hour, String branch) {
+        private static final Comparator<HourlyKey> ORDER = Comparator.comparing(HourlyKey::hour)
+                .thenComparing(HourlyKey::branch);
+    }
+
+    private static final class Delta {
+        private long units;
+        private double revenue;
+    }
+}
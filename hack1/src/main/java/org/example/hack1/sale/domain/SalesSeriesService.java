@@ -0,0 +1,107 @@
+package org.example.hack1.sale.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.example.hack1.sale.dto.SalesDayView;
+import org.example.hack1.sale.dto.SalesHourView;
+import org.example.hack1.sale.dto.SalesSeriesPointDto;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.example.hack1.sale.repo.SalesHourlyRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Series de unidades/revenue por hora, día o semana leídas de los rollups, nunca de la tabla de ventas.
+// Cada granularidad tiene un rango máximo: la respuesta incluye todos los buckets, también los vacíos.
+@Service
+@RequiredArgsConstructor
+public class SalesSeriesService {
+
+    private final SalesDailyRollupRepository dailyRollupRepository;
+    private final SalesHourlyRollupRepository hourlyRollupRepository;
+
+    @Value("${sales.series.max-hourly-days:31}")
+    private int maxHourlyDays;
+
+    // ~2 años de puntos diarios y ~10 años de semanales
+    @Value("${sales.series.max-daily-days:731}")
+    private int maxDailyDays;
+
+    @Value("${sales.series.max-weekly-days:3653}")
+    private int maxWeeklyDays;
+
+    @Transactional(readOnly = true)
+    public List<SalesSeriesPointDto> getSeries(SeriesGranularity granularity, LocalDate from, LocalDate to,
+                                               String branch) {
+        // Antes de armar los buckets: el rango define cuántos se crean en memoria
+        int maxDays = switch (granularity) {
+            case HOUR -> maxHourlyDays;
+            case DAY -> maxDailyDays;
+            case WEEK -> maxWeeklyDays;
+        };
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "La granularidad " + granularity.name().toLowerCase() + " admite como máximo " + maxDays + " días");
+        }
+
+        // Buckets vacíos incluidos, para que el cliente pueda graficar directamente
+        Map<LocalDateTime, SalesSeriesPointDto> points = emptyBuckets(granularity, from, to);
+
+        if (granularity == SeriesGranularity.HOUR) {
+            for (SalesHourView row : hourlyRollupRepository.sumByHour(
+                    from.atStartOfDay(), to.plusDays(1).atStartOfDay(), branch)) {
+                addTo(points, row.getHour(), row.getUnits(), row.getRevenue());
+            }
+        } else {
+            for (SalesDayView row : dailyRollupRepository.sumByDay(from, to, branch)) {
+                addTo(points, bucketStart(granularity, row.getDay()), row.getUnits(), row.getRevenue());
+            }
+        }
+        return new ArrayList<>(points.values());
+    }
+
+    private Map<LocalDateTime, SalesSeriesPointDto> emptyBuckets(SeriesGranularity granularity,
+                                                                 LocalDate from, LocalDate to) {
+        Map<LocalDateTime, SalesSeriesPointDto> points = new LinkedHashMap<>();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        LocalDateTime bucket = granularity == SeriesGranularity.HOUR ? from.atStartOfDay() : bucketStart(granularity, from);
+        while (bucket.isBefore(end)) {
+            points.put(bucket, new SalesSeriesPointDto(bucket, 0L, 0.0));
+            bucket = switch (granularity) {
+                case HOUR -> bucket.plusHours(1);
+                case DAY -> bucket.plusDays(1);
+                case WEEK -> bucket.plusWeeks(1);
+            };
+        }
+        return points;
+    }
+
+    // Las semanas empiezan en lunes (ISO) y cada bucket se etiqueta con su lunes, también el primero
+    // cuando from cae a mitad de semana: ese bucket (y el último, si to no es domingo) solo suma los
+    // días dentro de [from, to]. Así las etiquetas son las mismas sea cual sea el from pedido.
+    private LocalDateTime bucketStart(SeriesGranularity granularity, LocalDate day) {
+        return granularity == SeriesGranularity.WEEK
+                ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay()
+                : day.atStartOfDay();
+    }
+
+    private void addTo(Map<LocalDateTime, SalesSeriesPointDto> points, LocalDateTime bucket,
+                       Long units, Double revenue) {
+        SalesSeriesPointDto point = points.get(bucket);
+        if (point != null) {
+            point.setUnits(point.getUnits() + units);
+            point.setRevenue(point.getRevenue() + revenue);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.hack1.sale.domain;
+
+import org.example.hack1.sale.domain.event.AllSalesChangedEvent;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Versión por sucursal de los datos de ventas, para ETag/Last-Modified en las lecturas.
+// Toda escritura (SaleChangedEvent) sube la versión de su sucursal y la global (lecturas sin sucursal).
+// Se sube después del commit: en el peor caso un cliente recibe datos nuevos con el ETag viejo y
+// los vuelve a descargar en el siguiente poll, nunca lo contrario.
+// Con réplica de lectura se vuelve a subir pasado datasource.replica.max-lag: una lectura hecha
+// desde la réplica antes de que aplicara la escritura no queda fijada bajo el ETag nuevo.
+// Los cambios sin sucursal (AllSalesChangedEvent) suben una versión común que entra en todos los ETags,
+// también los de sucursales que todavía no tienen versión propia.
+// Es local al nodo; el id de arranque en el ETag evita repetir versiones tras un reinicio.
+@Component
+public class SalesVersionTracker {
+
+    private static final String ALL_BRANCHES = "*";
+
+    private final long bootId = System.currentTimeMillis();
+    private final Instant bootTime = Instant.ofEpochMilli(bootId);
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private final AtomicReference<Version> allBranches;
+    private final TaskScheduler taskScheduler;
+    private final Duration replicaMaxLag;
+
+    public SalesVersionTracker(TaskScheduler taskScheduler,
+                               @Value("${datasource.replica.url:}") String replicaUrl,
+                               @Value("${datasource.replica.max-lag:5s}") Duration replicaMaxLag) {
+        this.taskScheduler = taskScheduler;
+        this.replicaMaxLag = replicaUrl.isEmpty() ? Duration.ZERO : replicaMaxLag;
+        this.allBranches = new AtomicReference<>(new Version(0, bootTime));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaleChanged(SaleChangedEvent event) {
+        bump(event.getBranch());
+        bump(ALL_BRANCHES);
+        if (replicaMaxLag.isPositive() && taskScheduler != null) {
+            taskScheduler.schedule(() -> {
+                bump(event.getBranch());
+                bump(ALL_BRANCHES);
+            }, Instant.now().plus(replicaMaxLag));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAllSalesChanged(AllSalesChangedEvent event) {
+        bumpAll();
+        if (replicaMaxLag.isPositive() && taskScheduler != null) {
+            taskScheduler.schedule(this::bumpAll, Instant.now().plus(replicaMaxLag));
+        }
+    }
+
+    // Strong ETag de lo que ve quien consulta esta sucursal (null = todas). Incluye el día actual
+    // porque los rangos por defecto (últimos 7 días, hoy) cambian al cambiar la fecha.
+    public String etag(String branch) {
+        String key = key(branch);
+        return "\"" + Long.toString(bootId, 36) + "-" + LocalDate.now().toEpochDay() + "-" +
+                Integer.toHexString(key.hashCode()) + "-" + version(key).number() + "." + allBranches.get().number() + "\"";
+    }
+
+    public long lastModified(String branch) {
+        Instant modifiedAt = version(key(branch)).modifiedAt();
+        Instant allModifiedAt = allBranches.get().modifiedAt();
+        return (modifiedAt.isAfter(allModifiedAt) ? modifiedAt : allModifiedAt).toEpochMilli();
+    }
+
+    private void bump(String key) {
+        versions.compute(key, (k, current) -> new Version(current != null ? current.number() + 1 : 1, Instant.now()));
+    }
+
+    private void bumpAll() {
+        allBranches.updateAndGet(current -> new Version(current.number() + 1, Instant.now()));
+    }
+
+    private Version version(String key) {
+        return versions.getOrDefault(key, new Version(0, bootTime));
+    }
+
+    private static String key(String branch) {
+        return branch != null ? branch : ALL_BRANCHES;
+    }
+
+    private record Version(long number, Instant modifiedAt) {
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.hack1.sale.domain;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public enum SeriesGranularity {
+    HOUR,
+    DAY,
+    WEEK;
+
+    public static SeriesGranularity from(String value) {
+        for (SeriesGranularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value)) {
+                return granularity;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity debe ser hour, day o week");
+    }
+}
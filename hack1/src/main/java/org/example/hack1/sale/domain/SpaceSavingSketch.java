@@ -0,0 +1,145 @@
+package org.example.hack1.sale.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Top-K aproximado (Space-Saving ponderado) con memoria fija: nunca guarda más de `capacity` claves.
+// Mientras haya menos claves distintas que `capacity` los conteos son exactos (maxError = 0).
+// Es combinable entre particiones y entre nodos (counters() / of()).
+public class SpaceSavingSketch {
+
+    // Menor conteo primero; a igual conteo, la clave mayor primero para que counters() (orden inverso)
+    // desempate alfabéticamente y el reemplazo sea determinista
+    private static final Comparator<Counter> BY_UNITS = Comparator.<Counter>comparingLong(counter -> counter.units)
+            .thenComparing(counter -> counter.key, Comparator.reverseOrder());
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    // Los mismos contadores ordenados por unidades: el mínimo a reemplazar sale en O(log capacity),
+    // no recorriendo el mapa en cada clave nueva. Un contador se saca antes de cambiar sus unidades.
+    private final TreeSet<Counter> byUnits = new TreeSet<>(BY_UNITS);
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity debe ser al menos 1");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    // Reconstruye un sketch a partir de los contadores publicados por otro nodo
+    public static SpaceSavingSketch of(int capacity, List<HeavyHitter> counters) {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        for (HeavyHitter counter : counters) {
+            sketch.put(counter.key(), counter.units(), counter.maxError());
+        }
+        sketch.truncate();
+        return sketch;
+    }
+
+    public void add(String key, long units) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            increment(counter, units, 0);
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(key, units, 0);
+            return;
+        }
+        // Reemplaza al mínimo: la clave nueva hereda su conteo como cota de error
+        Counter min = byUnits.pollFirst();
+        counters.remove(min.key);
+        put(key, min.units + units, min.units);
+    }
+
+    public SpaceSavingSketch merge(SpaceSavingSketch other) {
+        // Una clave ausente en un sketch lleno pudo tener hasta su mínimo
+        long thisMin = isFull() ? byUnits.first().units : 0;
+        long otherMin = other.isFull() ? other.byUnits.first().units : 0;
+
+        if (otherMin > 0) {
+            for (Counter counter : List.copyOf(counters.values())) {
+                if (!other.counters.containsKey(counter.key)) {
+                    increment(counter, otherMin, otherMin);
+                }
+            }
+        }
+        for (Counter theirs : other.counters.values()) {
+            Counter counter = counters.get(theirs.key);
+            if (counter != null) {
+                increment(counter, theirs.units, theirs.maxError);
+            } else {
+                put(theirs.key, theirs.units + thisMin, theirs.maxError + thisMin);
+            }
+        }
+        truncate();
+        return this;
+    }
+
+    public List<HeavyHitter> top(int n) {
+        List<HeavyHitter> result = new ArrayList<>(Math.min(n, counters.size()));
+        Iterator<Counter> descending = byUnits.descendingIterator();
+        while (result.size() < n && descending.hasNext()) {
+            result.add(descending.next().toHeavyHitter());
+        }
+        return result;
+    }
+
+    // Todos los contadores, de mayor a menor
+    public List<HeavyHitter> counters() {
+        return top(counters.size());
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private void put(String key, long units, long maxError) {
+        Counter counter = new Counter(key, units, maxError);
+        Counter previous = counters.put(key, counter);
+        if (previous != null) {
+            byUnits.remove(previous);
+        }
+        byUnits.add(counter);
+    }
+
+    private void increment(Counter counter, long units, long maxError) {
+        byUnits.remove(counter);
+        counter.units += units;
+        counter.maxError += maxError;
+        byUnits.add(counter);
+    }
+
+    // Descarta los menores hasta volver a la capacidad (tras of() o merge())
+    private void truncate() {
+        while (counters.size() > capacity) {
+            counters.remove(byUnits.pollFirst().key);
+        }
+    }
+
+    private static final class Counter {
+        private final String key;
+        private long units;
+        private long maxError;
+
+        private Counter(String key, long units, long maxError) {
+            this.key = key;
+            this.units = units;
+            this.maxError = maxError;
+        }
+
+        private HeavyHitter toHeavyHitter() {
+            return new HeavyHitter(key, units, maxError);
+        }
+    }
+}
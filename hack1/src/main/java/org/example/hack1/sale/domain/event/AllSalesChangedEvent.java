@@ -0,0 +1,14 @@
+package org.example.hack1.sale.domain.event;
+
+// Cambio que puede afectar las lecturas de cualquier sucursal y no se asocia a una venta concreta
+// (particiones archivadas, usuarios eliminados)
+public class AllSalesChangedEvent {
+    private final String reason;
+
+    public AllSalesChangedEvent(String reason) {
+        this.reason = reason;
+    }
+
+    // Getters
+    public String getReason() { return reason; }
+}
@@ -0,0 +1,17 @@
+package org.example.hack1.sale.domain.event;
+
+import java.time.LocalDateTime;
+
+public class SaleChangedEvent {
+    private final String branch;
+    private final LocalDateTime soldAt;
+
+    public SaleChangedEvent(String branch, LocalDateTime soldAt) {
+        this.branch = branch;
+        this.soldAt = soldAt;
+    }
+
+    // Getters
+    public String getBranch() { return branch; }
+    public LocalDateTime getSoldAt() { return soldAt; }
+}
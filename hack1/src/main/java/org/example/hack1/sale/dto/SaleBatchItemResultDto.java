@@ -0,0 +1,18 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class SaleBatchItemResultDto {
+    private Integer index;
+    private Long id;
+    private List<String> errors;
+    // true si el clientSaleId ya existía: id es el de la venta original y no se creó otra
+    private Boolean replayed;
+}
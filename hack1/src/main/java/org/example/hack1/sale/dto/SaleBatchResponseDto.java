@@ -0,0 +1,20 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class SaleBatchResponseDto {
+    private Integer received;
+    private Integer created;
+    private Integer failed;
+    private Integer replayed;
+    private List<SaleBatchItemResultDto> results;
+}
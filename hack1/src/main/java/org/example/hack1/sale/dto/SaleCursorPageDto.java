@@ -0,0 +1,22 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class SaleCursorPageDto {
+    private List<SaleResponseDto> content;
+    private Integer size;
+    private Boolean hasNext;
+    // null en la última página; se pasa tal cual como ?cursor= para pedir la siguiente
+    private String nextCursor;
+    // Solo si se pidió includeTotal=true (cuesta un COUNT sobre todo el rango)
+    private Long totalElements;
+}
@@ -0,0 +1,24 @@
+package org.example.hack1.sale.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Getter
+@Setter
+public class SaleImportStatusDto {
+    private String importId;
+    // El progreso lo escribe solo el hilo que importa y lo lee GET /sales/import/{id} desde otros
+    // hilos: volatile alcanza con un único escritor
+    private volatile String status;
+    private String format;
+    private volatile long linesRead;
+    private volatile long created;
+    private volatile long failed;
+    private List<String> errors = new CopyOnWriteArrayList<>();
+    private LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+}
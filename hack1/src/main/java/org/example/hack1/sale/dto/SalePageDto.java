@@ -0,0 +1,23 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Página de GET /sales con count=none|estimated: hasNext sin COUNT exacto
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class SalePageDto {
+    private List<SaleResponseDto> content;
+    private Integer page;
+    private Integer size;
+    private Boolean hasNext;
+    // null con count=none; con count=estimated sale de las estadísticas del planner
+    private Long totalElements;
+    private String countMode;
+}
@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -28,4 +29,8 @@ public class SaleRequestDto {
     private String branch;
 
     private LocalDateTime soldAt;
+
+    // Clave de idempotencia del POS; equivalente al header Idempotency-Key
+    @Size(max = 100, message = "El clientSaleId admite como máximo 100 caracteres")
+    private String clientSaleId;
 }
@@ -0,0 +1,9 @@
+package org.example.hack1.sale.dto;
+
+import java.time.LocalDate;
+
+public interface SalesDayView {
+    LocalDate getDay();
+    Long getUnits();
+    Double getRevenue();
+}
@@ -0,0 +1,9 @@
+package org.example.hack1.sale.dto;
+
+// Proyección liviana: una fila por (sku, branch) ya agregada en la base de datos
+public interface SalesGroupView {
+    String getSku();
+    String getBranch();
+    Long getUnits();
+    Double getRevenue();
+}
@@ -0,0 +1,9 @@
+package org.example.hack1.sale.dto;
+
+import java.time.LocalDateTime;
+
+public interface SalesHourView {
+    LocalDateTime getHour();
+    Long getUnits();
+    Double getRevenue();
+}
@@ -0,0 +1,16 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class SalesSeriesPointDto {
+    private LocalDateTime bucket;
+    private Long units;
+    private Double revenue;
+}
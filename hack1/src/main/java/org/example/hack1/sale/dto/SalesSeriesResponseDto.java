@@ -0,0 +1,22 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.hack1.sale.domain.SeriesGranularity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class SalesSeriesResponseDto {
+    private SeriesGranularity granularity;
+    private String branch;
+    private LocalDate from;
+    private LocalDate to;
+    private List<SalesSeriesPointDto> points;
+}
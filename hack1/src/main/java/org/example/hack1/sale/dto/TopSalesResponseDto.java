@@ -0,0 +1,23 @@
+package org.example.hack1.sale.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.hack1.sale.domain.HeavyHitter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class TopSalesResponseDto {
+    private LocalDate from;
+    private LocalDate to;
+    private String branch;
+    private Integer totalUnits;
+    private List<HeavyHitter> topSkus;
+    private List<HeavyHitter> topBranches;
+}
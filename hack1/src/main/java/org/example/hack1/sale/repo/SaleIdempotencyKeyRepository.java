@@ -0,0 +1,45 @@
+package org.example.hack1.sale.repo;
+
+import jakarta.persistence.QueryHint;
+import org.example.hack1.sale.domain.SaleIdempotencyKey;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+public interface SaleIdempotencyKeyRepository extends JpaRepository<SaleIdempotencyKey, String> {
+
+    // Sin SELECT previo: la PK resuelve la carrera entre reintentos concurrentes
+    String INSERT_SQL = "INSERT INTO sale_idempotency_keys (client_key, sale_id, user_id, created_at) " +
+            "VALUES (:clientKey, :saleId, :userId, :createdAt)";
+
+    // Versión por lotes (vía JDBC, arrays paralelos): una sola sentencia que devuelve las claves que sí
+    // insertó. Con reWriteBatchedInserts un batchUpdate no informa filas por sentencia (SUCCESS_NO_INFO),
+    // así que los conflictos no se podrían distinguir. ORDER BY fija el orden de los locks entre lotes.
+    String INSERT_ALL_IF_ABSENT_SQL = "INSERT INTO sale_idempotency_keys (client_key, sale_id, user_id, created_at) " +
+            "SELECT k.client_key, k.sale_id, k.user_id, :createdAt " +
+            "FROM unnest(CAST(:clientKeys AS varchar[]), CAST(:saleIds AS bigint[]), CAST(:userIds AS bigint[])) " +
+            "AS k(client_key, sale_id, user_id) ORDER BY k.client_key " +
+            "ON CONFLICT (client_key) DO NOTHING RETURNING client_key";
+
+    // Devuelve 0 si la clave ya existía (la inserción concurrente espera al commit de la otra)
+    @Modifying
+    @Query(value = INSERT_SQL + " ON CONFLICT (client_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("clientKey") String clientKey,
+                       @Param("saleId") Long saleId,
+                       @Param("userId") Long userId,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    // Para precargar el filtro de Bloom al arrancar
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT k.clientKey FROM SaleIdempotencyKey k")
+    Stream<String> streamAllKeys();
+}
@@ -1,15 +1,26 @@
 package org.example.hack1.sale.repo;
 
+import jakarta.persistence.QueryHint;
 import org.example.hack1.sale.domain.Sale;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.dto.SalesGroupView;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+// sales está particionada por mes sobre sold_at: las consultas con rango de soldAt solo leen las
+// particiones del rango (partition pruning); las que no filtran por fecha recorren todas.
 public interface SaleRepository extends JpaRepository<Sale, Long> {
 
     // Métodos paginados
@@ -24,7 +35,106 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     // Método para buscar por branch
     List<Sale> findByBranch(String branch);
 
+    // Antes de eliminar un usuario (idx_sales_created_by)
+    boolean existsByCreatedById(Long userId);
+
     // Query para obtener ventas por rango de fechas
     @Query("SELECT s FROM Sale s WHERE s.soldAt BETWEEN :start AND :end")
     List<Sale> findSalesInDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+
+    // Agregación en SQL: devuelve una fila por (sku, branch) sin hidratar entidades Sale.
+    // Se consume como Stream (cursor con fetch size) dentro de una transacción de solo lectura.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.sku AS sku, s.branch AS branch, SUM(s.units) AS units, SUM(s.units * s.price) AS revenue " +
+            "FROM Sale s " +
+            "WHERE s.soldAt BETWEEN :start AND :end AND (:branch IS NULL OR s.branch = :branch) " +
+            "GROUP BY s.sku, s.branch")
+    Stream<SalesGroupView> aggregateBySkuAndBranch(@Param("start") LocalDateTime start,
+                                                   @Param("end") LocalDateTime end,
+                                                   @Param("branch") String branch);
+
+    // Lecturas para la API: proyección directa a SaleResponseDto con JOIN a users, sin hidratar
+    // Sale ni disparar el lazy load de createdBy por fila. Los COUNT no necesitan el JOIN
+    // (created_by es NOT NULL).
+    String RESPONSE_SELECT = "SELECT new org.example.hack1.sale.dto.SaleResponseDto(" +
+            "s.id, s.sku, s.units, s.price, s.branch, s.soldAt, u.username) " +
+            "FROM Sale s JOIN s.createdBy u ";
+
+    @Query(RESPONSE_SELECT + "WHERE s.id = :id")
+    Optional<SaleResponseDto> findResponseById(@Param("id") Long id);
+
+    @Query(value = RESPONSE_SELECT,
+            countQuery = "SELECT COUNT(s) FROM Sale s")
+    Page<SaleResponseDto> findAllResponses(Pageable pageable);
+
+    @Query(value = RESPONSE_SELECT + "WHERE s.branch = :branch",
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.branch = :branch")
+    Page<SaleResponseDto> findResponsesByBranch(@Param("branch") String branch, Pageable pageable);
+
+    @Query(value = RESPONSE_SELECT + "WHERE s.soldAt BETWEEN :start AND :end",
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.soldAt BETWEEN :start AND :end")
+    Page<SaleResponseDto> findResponsesBySoldAtBetween(@Param("start") LocalDateTime start,
+                                                       @Param("end") LocalDateTime end,
+                                                       Pageable pageable);
+
+    @Query(value = RESPONSE_SELECT + "WHERE s.branch = :branch AND s.soldAt BETWEEN :start AND :end",
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.branch = :branch AND s.soldAt BETWEEN :start AND :end")
+    Page<SaleResponseDto> findResponsesByBranchAndSoldAtBetween(@Param("branch") String branch,
+                                                                @Param("start") LocalDateTime start,
+                                                                @Param("end") LocalDateTime end,
+                                                                Pageable pageable);
+
+    // Variante Slice (count=none|estimated en GET /sales): Spring Data pide size+1 filas y no ejecuta COUNT.
+    // Sin un orden total OFFSET no es estable entre páginas: el id desempata ventas del mismo instante.
+    @Query(RESPONSE_SELECT +
+            "WHERE s.soldAt BETWEEN :start AND :end AND (:branch IS NULL OR s.branch = :branch) " +
+            "ORDER BY s.soldAt DESC, s.id DESC")
+    Slice<SaleResponseDto> findResponsesSlice(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end,
+                                              @Param("branch") String branch,
+                                              Pageable pageable);
+
+    // Keyset: filas estrictamente "después" del cursor (soldAt, id) en orden descendente.
+    // El primer término acota por soldAt para que el índice/partición se use; el OR desempata por id.
+    // Con y sin sucursal van por separado: cada una tiene su índice (idx_sales_branch_sold_at_id /
+    // idx_sales_sold_at_id) y un filtro opcional "(:branch IS NULL OR ...)" no lo deja elegir bien.
+    String KEYSET_AFTER = "s.soldAt <= :cursorSoldAt AND (s.soldAt < :cursorSoldAt OR s.id < :cursorId) " +
+            "ORDER BY s.soldAt DESC, s.id DESC";
+
+    @Query(RESPONSE_SELECT + "WHERE s.soldAt BETWEEN :start AND :end AND " + KEYSET_AFTER)
+    List<SaleResponseDto> findResponsesAfter(@Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end,
+                                             @Param("cursorSoldAt") LocalDateTime cursorSoldAt,
+                                             @Param("cursorId") Long cursorId,
+                                             Limit limit);
+
+    @Query(RESPONSE_SELECT + "WHERE s.branch = :branch AND s.soldAt BETWEEN :start AND :end AND " + KEYSET_AFTER)
+    List<SaleResponseDto> findResponsesByBranchAfter(@Param("branch") String branch,
+                                                     @Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end,
+                                                     @Param("cursorSoldAt") LocalDateTime cursorSoldAt,
+                                                     @Param("cursorId") Long cursorId,
+                                                     Limit limit);
+
+    // Exportación: cursor del servidor (fetch size) recorrido dentro de una transacción de solo lectura.
+    // Al ser DTOs no quedan en el contexto de persistencia, así que la memoria no crece con el rango.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_SELECT +
+            "WHERE s.soldAt BETWEEN :start AND :end AND (:branch IS NULL OR s.branch = :branch) " +
+            "ORDER BY s.soldAt, s.id")
+    Stream<SaleResponseDto> streamResponses(@Param("start") LocalDateTime start,
+                                            @Param("end") LocalDateTime end,
+                                            @Param("branch") String branch);
+
+    @Query("SELECT COUNT(s) FROM Sale s " +
+            "WHERE s.soldAt BETWEEN :start AND :end AND (:branch IS NULL OR s.branch = :branch)")
+    long countInRange(@Param("start") LocalDateTime start,
+                      @Param("end") LocalDateTime end,
+                      @Param("branch") String branch);
+}
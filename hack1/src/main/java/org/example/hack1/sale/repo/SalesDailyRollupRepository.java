@@ -0,0 +1,57 @@
+package org.example.hack1.sale.repo;
+
+import jakarta.persistence.QueryHint;
+import org.example.hack1.sale.domain.SalesDailyRollup;
+import org.example.hack1.sale.domain.SalesDailyRollupId;
+import org.example.hack1.sale.dto.SalesDayView;
+import org.example.hack1.sale.dto.SalesGroupView;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollupId> {
+
+    // Upsert atómico: suma el delta a la fila o la crea si no existe (también usado en batch vía JDBC)
+    String UPSERT_SQL = "INSERT INTO sales_daily_rollup (sale_day, branch, sku, units, revenue) " +
+            "VALUES (:day, :branch, :sku, :units, :revenue) " +
+            "ON CONFLICT (sale_day, branch, sku) DO UPDATE SET " +
+            "units = sales_daily_rollup.units + EXCLUDED.units, " +
+            "revenue = sales_daily_rollup.revenue + EXCLUDED.revenue";
+
+    @Modifying
+    @Query(value = UPSERT_SQL, nativeQuery = true)
+    void applyDelta(@Param("day") LocalDate day,
+                    @Param("branch") String branch,
+                    @Param("sku") String sku,
+                    @Param("units") long units,
+                    @Param("revenue") double revenue);
+
+    // Misma forma que SaleRepository.aggregateBySkuAndBranch, pero sobre días completos
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r.id.sku AS sku, r.id.branch AS branch, SUM(r.units) AS units, SUM(r.revenue) AS revenue " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.id.day BETWEEN :from AND :to AND (:branch IS NULL OR r.id.branch = :branch) " +
+            "GROUP BY r.id.sku, r.id.branch")
+    Stream<SalesGroupView> aggregateBySkuAndBranch(@Param("from") LocalDate from,
+                                                   @Param("to") LocalDate to,
+                                                   @Param("branch") String branch);
+
+    // Una fila por día con ventas en [from, to], sumando todos los SKUs
+    @Query("SELECT r.id.day AS day, SUM(r.units) AS units, SUM(r.revenue) AS revenue " +
+            "FROM SalesDailyRollup r " +
+            "WHERE r.id.day BETWEEN :from AND :to AND (:branch IS NULL OR r.id.branch = :branch) " +
+            "GROUP BY r.id.day ORDER BY r.id.day")
+    List<SalesDayView> sumByDay(@Param("from") LocalDate from,
+                                @Param("to") LocalDate to,
+                                @Param("branch") String branch);
+}
@@ -0,0 +1,38 @@
+package org.example.hack1.sale.repo;
+
+import org.example.hack1.sale.domain.SalesHourlyRollup;
+import org.example.hack1.sale.domain.SalesHourlyRollupId;
+import org.example.hack1.sale.dto.SalesHourView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SalesHourlyRollupRepository extends JpaRepository<SalesHourlyRollup, SalesHourlyRollupId> {
+
+    // Upsert atómico: suma el delta a la fila o la crea si no existe (también usado en batch vía JDBC)
+    String UPSERT_SQL = "INSERT INTO sales_hourly_rollup (bucket_hour, branch, units, revenue) " +
+            "VALUES (:hour, :branch, :units, :revenue) " +
+            "ON CONFLICT (bucket_hour, branch) DO UPDATE SET " +
+            "units = sales_hourly_rollup.units + EXCLUDED.units, " +
+            "revenue = sales_hourly_rollup.revenue + EXCLUDED.revenue";
+
+    @Modifying
+    @Query(value = UPSERT_SQL, nativeQuery = true)
+    void applyDelta(@Param("hour") LocalDateTime hour,
+                    @Param("branch") String branch,
+                    @Param("units") long units,
+                    @Param("revenue") double revenue);
+
+    // Una fila por hora con ventas en [start, end)
+    @Query("SELECT r.id.hour AS hour, SUM(r.units) AS units, SUM(r.revenue) AS revenue " +
+            "FROM SalesHourlyRollup r " +
+            "WHERE r.id.hour >= :start AND r.id.hour < :end AND (:branch IS NULL OR r.id.branch = :branch) " +
+            "GROUP BY r.id.hour ORDER BY r.id.hour")
+    List<SalesHourView> sumByHour(@Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end,
+                                  @Param("branch") String branch);
+}
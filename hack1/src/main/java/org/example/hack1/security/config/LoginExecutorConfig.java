@@ -0,0 +1,31 @@
+package org.example.hack1.security.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class LoginExecutorConfig {
+
+    // Pool acotado para BCrypt: en una ola de logins solo estos hilos hashean y, con la cola llena,
+    // el login se rechaza al instante (429) en lugar de ocupar los hilos de Tomcat que atienden ventas
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor loginExecutor(MeterRegistry meterRegistry,
+                                            @Value("${security.login.threads:2}") int threads,
+                                            @Value("${security.login.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("login-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // executor.queued, executor.active, executor.completed... con tag name=login
+        new ExecutorServiceMetrics(executor, "login", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
@@ -1,21 +1,18 @@
 package org.example.hack1.security.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import org.example.hack1.security.dto.AuthResponse;
 import org.example.hack1.security.dto.LoginRequestDto;
 import org.example.hack1.security.dto.RegisterRequest;
+import org.example.hack1.security.service.AuthService;
 import org.example.hack1.user.domain.User;
 import org.example.hack1.user.domain.UserRole;
 import org.example.hack1.user.repo.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -25,19 +22,30 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
+    private final Counter loginRejections;
+
+    public AuthController(MeterRegistry meterRegistry) {
+        this.loginRejections = Counter.builder("security.login.rejected")
+                .description("Logins rechazados con 429 por cola de BCrypt llena")
+                .register(meterRegistry);
+    }
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private org.example.hack1.security.sec.JwtUtil jwtUtil;
+    private AuthService authService;
+
+    @Autowired
+    private ThreadPoolExecutor loginExecutor;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -90,30 +98,18 @@ public class AuthController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // El request queda en espera asíncrona mientras loginExecutor verifica el hash; el hilo de
+    // Tomcat vuelve al pool. Con la cola llena se responde 429 sin llegar a hashear.
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequestDto request) {
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequestDto request) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            User user = userRepository.findByUsername(request.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-
-            String token = jwtUtil.generateToken(user);
-
-            AuthResponse response = new AuthResponse();
-            response.setToken(token);
-            response.setExpiresIn(3600L);
-            response.setUserRole(user.getUserRole());
-            response.setBranch(user.getBranch());
-
-            return ResponseEntity.ok(response);
-
-        } catch (BadCredentialsException e) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Credenciales inválidas");
+            return CompletableFuture.supplyAsync(
+                    () -> ResponseEntity.ok(authService.login(request.getUsername(), request.getPassword())),
+                    loginExecutor);
+        } catch (RejectedExecutionException e) {
+            loginRejections.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Demasiados inicios de sesión en curso, reintenta en unos segundos");
         }
     }
 }
\ No newline at end of file
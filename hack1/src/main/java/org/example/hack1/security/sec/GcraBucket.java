@@ -0,0 +1,36 @@
+package org.example.hack1.security.sec;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket en su forma GCRA (Generic Cell Rate Algorithm): todo el estado es un único instante,
+// el "theoretical arrival time" (TAT), actualizado con CAS. Sin locks ni hilo de recarga.
+// Admite ráfagas de hasta burst requests y, sostenido, ratePerSecond.
+public class GcraBucket {
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public GcraBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate debe ser > 0 y burst >= 1");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = emissionIntervalNanos * burst;
+    }
+
+    // 0 si el request se admite (y se consume); si no, los nanos que faltan para que se admita
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            long waitNanos = next - toleranceNanos - nowNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
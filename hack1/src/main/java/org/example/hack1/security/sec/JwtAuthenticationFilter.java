@@ -34,12 +34,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String token = authHeader.substring(7);
-            final String userRole = jwtUtil.extractRole(token).name();
-            final String username = jwtUtil.extractUsername(token);
+            // Una sola verificación por request (y ninguna si el token ya está en caché)
+            final JwtPrincipal principal = jwtUtil.verify(token);
+            final String userRole = principal.role().name();
+            final String username = principal.username();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // El principal lleva username, rol y sucursal: SecurityUtils no vuelve a la base
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        username,
+                        principal,
                         null,
                         Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + userRole))
                 );
@@ -0,0 +1,21 @@
+package org.example.hack1.security.sec;
+
+import org.example.hack1.user.domain.UserRole;
+
+import java.security.Principal;
+import java.time.Instant;
+
+// Resultado de verificar un JWT: lo que el token afirma, ya con la firma y la expiración comprobadas.
+// Es también el principal del SecurityContext (Authentication.getName() devuelve el username).
+public record JwtPrincipal(Long userId, String username, UserRole role, String branch, Instant expiresAt)
+        implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
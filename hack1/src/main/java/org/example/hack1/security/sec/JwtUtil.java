@@ -1,25 +1,59 @@
 package org.example.hack1.security.sec;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.example.hack1.user.domain.User;
 import org.example.hack1.user.domain.UserRole;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
+// La clave y el parser se construyen una sola vez. verify() guarda los tokens ya verificados
+// (clave: SHA-256 del token) hasta su expiración, así que un token repetido no se vuelve a parsear
+// ni a comprobar su firma. Un token adulterado tiene otro hash y pasa por la verificación completa.
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final Long expiration;
+    private final Cache<String, JwtPrincipal> verified;
 
-    @Value("${jwt.expiration:3600}")
-    private Long expiration;
+    public JwtUtil(MeterRegistry meterRegistry,
+                   @Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration:3600}") Long expiration,
+                   @Value("${jwt.cache.max-size:10000}") long cacheMaxSize) {
+        // Mismo formato que antes: el secreto viene en Base64
+        this.key = new SecretKeySpec(Decoders.BASE64.decode(secret), "HmacSHA256");
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.expiration = expiration;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.creating((String hash, JwtPrincipal principal) ->
+                        Duration.between(Instant.now(), principal.expiresAt())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
+    }
 
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
@@ -28,45 +62,63 @@ public class JwtUtil {
         claims.put("username", user.getUsername());
 
         return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(user.getId().toString()) // Corregido: toString() para ID
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(SignatureAlgorithm.HS256, secret)
+                .claims(claims)
+                .subject(user.getId().toString()) // Corregido: toString() para ID
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(new Date(System.currentTimeMillis() + expiration * 1000))
+                .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
+    // Verifica firma y expiración una vez por token; lanza JwtException si el token no es válido
+    public JwtPrincipal verify(String token) {
+        String hash = sha256(token);
+        JwtPrincipal cached = verified.getIfPresent(hash);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        JwtPrincipal principal = new JwtPrincipal(
+                Long.valueOf(claims.getSubject()),
+                claims.get("username", String.class),
+                UserRole.valueOf(claims.get("role", String.class)),
+                claims.get("branch", String.class),
+                claims.getExpiration().toInstant());
+        verified.put(hash, principal);
+        return principal;
+    }
+
     public String extractUserId(String token) {
-        return extractAllClaims(token).getSubject();
+        return verify(token).userId().toString();
     }
 
     public UserRole extractRole(String token) {
-        String role = extractAllClaims(token).get("role", String.class);
-        return UserRole.valueOf(role);
+        return verify(token).role();
     }
 
     public String extractBranch(String token) {
-        return extractAllClaims(token).get("branch", String.class);
+        return verify(token).branch();
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).get("username", String.class);
+        return verify(token).username();
     }
 
     public boolean validateToken(String token, User user) {
-        final String username = extractUsername(token);
-        return username.equals(user.getUsername()) && !isTokenExpired(token);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(secret)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        try {
+            return verify(token).username().equals(user.getUsername());
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package org.example.hack1.security.sec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.hack1.user.domain.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Limita escrituras y reportes (POST/PUT/DELETE bajo /sales, incluido /sales/summary/weekly) por
+// usuario, con límite según el rol, y por sucursal sumando a todos sus usuarios, para que un POS
+// desbocado no degrade al resto. Va después de JwtAuthenticationFilter: necesita el JwtPrincipal.
+// Es local al nodo: con N instancias detrás de un balanceador el límite efectivo es N veces mayor.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_METHODS = Set.of("POST", "PUT", "DELETE");
+
+    private final boolean enabled;
+    private final Map<UserRole, Limit> userLimits;
+    private final Limit branchLimit;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Buckets inactivos se descartan: un bucket nuevo empieza lleno, igual que uno que lleva
+    // más de idle-ttl sin uso
+    private final Cache<String, Bucket> buckets;
+
+    public RateLimitFilter(MeterRegistry meterRegistry,
+                           @Value("${security.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${security.rate-limit.role.branch.rate:5}") double branchUserRate,
+                           @Value("${security.rate-limit.role.branch.burst:20}") int branchUserBurst,
+                           @Value("${security.rate-limit.role.central.rate:20}") double centralUserRate,
+                           @Value("${security.rate-limit.role.central.burst:50}") int centralUserBurst,
+                           @Value("${security.rate-limit.per-branch.rate:20}") double branchRate,
+                           @Value("${security.rate-limit.per-branch.burst:60}") int branchBurst,
+                           @Value("${security.rate-limit.idle-ttl:10m}") Duration idleTtl) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.userLimits = Map.of(
+                UserRole.BRANCH, new Limit(branchUserRate, branchUserBurst),
+                UserRole.CENTRAL, new Limit(centralUserRate, centralUserBurst));
+        this.branchLimit = new Limit(branchRate, branchBurst);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(idleTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "security.rate_limit.buckets");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !enabled
+                || !LIMITED_METHODS.contains(request.getMethod())
+                || !(path.equals("/sales") || path.startsWith("/sales/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtPrincipal principal)) {
+            // Sin token válido: la autorización lo rechaza más adelante
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = acquire("user", principal.userId().toString(), userLimits.get(principal.role()), now);
+        if (waitNanos == 0 && principal.branch() != null) {
+            waitNanos = acquire("branch", principal.branch(), branchLimit, now);
+        }
+        if (waitNanos > 0) {
+            reject(request, response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private long acquire(String scope, String key, Limit limit, long now) {
+        Bucket bucket = buckets.get(scope + ":" + key, k -> new Bucket(
+                new GcraBucket(limit.rate(), limit.burst()),
+                counter(scope, key, "allowed"),
+                counter(scope, key, "rejected")));
+        long waitNanos = bucket.gcra().tryAcquire(now);
+        (waitNanos == 0 ? bucket.allowed() : bucket.rejected()).increment();
+        return waitNanos;
+    }
+
+    // Un par de counters por usuario y por sucursal: la cardinalidad es la de la tabla users
+    private Counter counter(String scope, String key, String outcome) {
+        return Counter.builder("security.rate_limit.requests")
+                .description("Requests evaluados por el rate limiter")
+                .tag("scope", scope)
+                .tag("key", key)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType("application/json");
+
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("error", "TOO_MANY_REQUESTS");
+        errorDetails.put("message", "Demasiadas solicitudes, reintenta en " + retryAfterSeconds + " s");
+        errorDetails.put("timestamp", Instant.now().toString());
+        errorDetails.put("path", request.getServletPath());
+        objectMapper.writeValue(response.getOutputStream(), errorDetails);
+    }
+
+    private record Limit(double rate, int burst) {
+    }
+
+    private record Bucket(GcraBucket gcra, Counter allowed, Counter rejected) {
+    }
+}
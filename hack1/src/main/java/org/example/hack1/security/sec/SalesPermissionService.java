@@ -21,7 +21,7 @@ public class SalesPermissionService {
     public void validateSaleCreation(String requestedBranch) {
         if (!securityUtils.isCentralUser()) {
             String userBranch = securityUtils.getCurrentUserBranch();
-            if (!userBranch.equals(requestedBranch)) {
+            if (userBranch == null || !userBranch.equals(requestedBranch)) {
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN,
                         "Solo puedes crear ventas para tu sucursal: " + userBranch);
             }
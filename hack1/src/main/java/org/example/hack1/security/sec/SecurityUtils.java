@@ -1,22 +1,42 @@
 package org.example.hack1.security.sec;
 
-import org.example.hack1.user.domain.User;
-import org.example.hack1.user.repo.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 
+// Identidad del request actual. Con JWT todo sale de los claims ya verificados (JwtPrincipal),
+// sin consultar la tabla de usuarios: un cambio de rol o sucursal se ve recién con el próximo token.
 @Component
 public class SecurityUtils {
 
-    @Autowired
-    private UserRepository userRepository;
+    public JwtPrincipal getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+
+    public JwtPrincipal requireCurrentPrincipal() {
+        JwtPrincipal principal = getCurrentPrincipal();
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Se requiere un token válido");
+        }
+        return principal;
+    }
 
     public String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof UserDetails) {
+        if (authentication == null) {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.username();
+        }
+        if (authentication.getPrincipal() instanceof UserDetails) {
             return ((UserDetails) authentication.getPrincipal()).getUsername();
         }
         return null;
@@ -29,16 +49,8 @@ public class SecurityUtils {
     }
 
     public String getCurrentUserBranch() {
-        String username = getCurrentUsername();
-        if (username != null) {
-            // Buscar el usuario en la base de datos para obtener su branch
-            User user = userRepository.findByUsername(username)
-                    .orElse(null);
-            if (user != null) {
-                return user.getBranch();
-            }
-        }
-        return null;
+        JwtPrincipal principal = getCurrentPrincipal();
+        return principal != null ? principal.branch() : null;
     }
 
     public boolean hasAccessToBranch(String branch) {
@@ -57,4 +69,4 @@ public class SecurityUtils {
             );
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package org.example.hack1.security.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.example.hack1.security.dto.AuthResponse;
 import org.example.hack1.security.dto.RegisterRequest;
 import org.example.hack1.security.sec.JwtUtil;
@@ -8,55 +11,78 @@ import org.example.hack1.user.domain.User;
 import org.example.hack1.user.domain.UserRole;
 import org.example.hack1.user.repo.UserRepository;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+@Slf4j
 @Service
 @Transactional
-@RequiredArgsConstructor
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
     private final PasswordEncoder passwordEncoder;
+    private final Timer hashTimer;
+    private final Counter rehashes;
+    // Hash contra el que se compara cuando el usuario no existe, para que responder 401 cueste
+    // lo mismo que con un usuario real y el tiempo de respuesta no revele qué usernames existen
+    private final String dummyHash;
+
+    public AuthService(UserRepository userRepository,
+                       JwtUtil jwtUtil,
+                       PasswordEncoder passwordEncoder,
+                       MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.passwordEncoder = passwordEncoder;
+        this.hashTimer = Timer.builder("security.login.hash")
+                .description("Tiempo de verificación BCrypt por login")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rehashes = Counter.builder("security.login.rehash")
+                .description("Contraseñas rehasheadas al costo configurado")
+                .register(meterRegistry);
+        this.dummyHash = passwordEncoder.encode("dummy-password-" + System.nanoTime());
+    }
 
     // 🟢 LOGIN
+    // Corre en loginExecutor, no en el hilo de Tomcat. Sin transacción: no se retiene una conexión
+    // mientras BCrypt trabaja. Un único lookup del usuario (antes AuthenticationManager y luego
+    // findByUsername lo cargaban dos veces).
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthResponse login(String username, String password) {
-        try {
-            // Autenticar con Spring Security
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(username, password)
-            );
+        User user = userRepository.findByUsername(username).orElse(null);
+        String hash = user != null ? user.getPassword() : dummyHash;
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            // Buscar usuario en la base de datos
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado"));
+        boolean matches = hashTimer.record(() -> passwordEncoder.matches(password, hash));
+        if (user == null || !matches) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Credenciales inválidas");
+        }
 
-            // Generar token JWT
-            String token = jwtUtil.generateToken(user);
+        // Hash con costo menor al configurado (security.bcrypt.strength): se actualiza ahora que
+        // tenemos la contraseña en claro. Si falla, el login sigue siendo válido.
+        if (passwordEncoder.upgradeEncoding(hash)) {
+            try {
+                userRepository.updatePassword(user.getUsername(), passwordEncoder.encode(password));
+                rehashes.increment();
+            } catch (RuntimeException e) {
+                log.warn("No se pudo rehashear la contraseña de {}", username, e);
+            }
+        }
 
-            // Crear respuesta - CORREGIDO
-            AuthResponse response = new AuthResponse();
-            response.setToken(token);
-            response.setExpiresIn(3600L);
-            response.setUserRole(user.getUserRole());  // Corregido: setUserRole()
-            response.setBranch(user.getBranch());
+        // Generar token JWT
+        String token = jwtUtil.generateToken(user);
 
-            return response;
+        AuthResponse response = new AuthResponse();
+        response.setToken(token);
+        response.setExpiresIn(3600L);
+        response.setUserRole(user.getUserRole());  // Corregido: setUserRole()
+        response.setBranch(user.getBranch());
 
-        } catch (BadCredentialsException e) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Credenciales inválidas");
-        }
+        return response;
     }
 
     // 🟡 REGISTER
@@ -0,0 +1,33 @@
+package org.example.hack1.user.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.hack1.user.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class UserCacheConfig {
+
+    // Acotado y con TTL: los usuarios cambian poco, pero un cambio hecho por fuera de la aplicación
+    // (o en otro nodo) se ve a más tardar en user.cache.ttl.
+    // Transaction-aware: las evicciones se aplican después del commit, así un lookup concurrente
+    // no vuelve a cachear la fila vieja entre la evicción y el commit.
+    @Bean
+    public CacheManager cacheManager(@Value("${user.cache.max-size:10000}") long maxSize,
+                                     @Value("${user.cache.ttl:10m}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(UserRepository.USERS_BY_USERNAME);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -36,6 +36,8 @@ public class User{
 
     private String branch;
 
-    @OneToMany(mappedBy = "createdBy", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Sin cascade: borrar ventas en bloque saltearía rollups, eventos e invalidaciones de SaleService.
+    // Un usuario con ventas no se puede eliminar (ver UserService.deleteUser).
+    @OneToMany(mappedBy = "createdBy")
     private List<Sale> sales = new ArrayList<>();
 }
@@ -1,8 +1,12 @@
 package org.example.hack1.user.domain;
 
 import lombok.RequiredArgsConstructor;
+import org.example.hack1.sale.domain.event.AllSalesChangedEvent;
+import org.example.hack1.sale.repo.SaleRepository;
 import org.example.hack1.user.dto.UserRequestDto;
 import org.example.hack1.user.repo.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -16,6 +20,8 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final SaleRepository saleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -56,7 +62,18 @@ public class UserService {
         if (!userRepository.existsById(id)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado");
         }
-        userRepository.deleteById(id);
+        // Las ventas son historial de la sucursal: no se borran junto con quien las registró
+        if (saleRepository.existsByCreatedById(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El usuario tiene ventas registradas y no se puede eliminar");
+        }
+        try {
+            userRepository.deleteById(id);
+        } catch (DataIntegrityViolationException e) {
+            // Registró una venta entre la verificación y el DELETE: la FK de sales.created_by lo frena
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El usuario tiene ventas registradas y no se puede eliminar");
+        }
+        // Las respuestas de ventas incluyen el username de quien las creó: los ETags no deben sobrevivir a la baja
+        eventPublisher.publishEvent(new AllSalesChangedEvent("usuario eliminado: " + id));
     }
 
     public boolean existsByUsername(String username) {
@@ -1,15 +1,44 @@
 package org.example.hack1.user.repo;
 
 import org.example.hack1.user.domain.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    String USERS_BY_USERNAME = "usersByUsername";
+
+    // Login y CustomUserDetailsService. El User devuelto es una instancia compartida y desconectada
+    // de la sesión: solo lectura. Los usernames inexistentes no se cachean.
+    @Cacheable(cacheNames = USERS_BY_USERNAME, unless = "#result == null")
     Optional<User> findByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 
     Optional<User> findByEmail(String email);
+
+    // Las altas (UserService.createUser, registro) y cualquier cambio pasan por save
+    @Override
+    @CacheEvict(cacheNames = USERS_BY_USERNAME, key = "#p0.username")
+    <S extends User> S save(S user);
+
+    // Solo se conoce el id: se vacía el caché completo (las bajas son raras)
+    @Override
+    @CacheEvict(cacheNames = USERS_BY_USERNAME, allEntries = true)
+    void deleteById(Long id);
+
+    // Rehash tras un login: un solo UPDATE, sin volver a cargar el usuario
+    @Modifying
+    @Transactional
+    @CacheEvict(cacheNames = USERS_BY_USERNAME, key = "#p0")
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
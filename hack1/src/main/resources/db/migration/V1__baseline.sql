@@ -0,0 +1,58 @@
+-- Esquema base, equivalente a lo que generaba ddl-auto=create-drop salvo por sales,
+-- que pasa a estar particionada por mes sobre sold_at.
+
+CREATE TABLE users (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username  VARCHAR(255) NOT NULL UNIQUE,
+    email     VARCHAR(255) NOT NULL UNIQUE,
+    password  VARCHAR(255) NOT NULL,
+    user_role VARCHAR(255) NOT NULL CHECK (user_role IN ('CENTRAL', 'BRANCH')),
+    branch    VARCHAR(255)
+);
+
+-- INCREMENT BY debe coincidir con allocationSize de Sale (optimizador pooled)
+CREATE SEQUENCE sales_seq START WITH 1 INCREMENT BY 50;
+
+-- La PK de una tabla particionada tiene que incluir la clave de partición: id sigue siendo único
+-- porque sale de sales_seq, pero la base solo lo garantiza junto con sold_at.
+-- Las particiones mensuales (sales_pYYYY_MM) las crea SalesPartitionService por adelantado.
+CREATE TABLE sales (
+    id         BIGINT           NOT NULL,
+    sku        VARCHAR(255)     NOT NULL,
+    units      INTEGER          NOT NULL,
+    price      DOUBLE PRECISION NOT NULL,
+    branch     VARCHAR(255)     NOT NULL,
+    sold_at    TIMESTAMP(6)     NOT NULL,
+    created_by BIGINT           NOT NULL REFERENCES users (id),
+    PRIMARY KEY (id, sold_at)
+) PARTITION BY RANGE (sold_at);
+
+-- Red de seguridad para ventas fuera de las particiones creadas (p. ej. back-fills de meses viejos)
+CREATE TABLE sales_default PARTITION OF sales DEFAULT;
+
+CREATE TABLE sales_daily_rollup (
+    sale_day DATE             NOT NULL,
+    branch   VARCHAR(255)     NOT NULL,
+    sku      VARCHAR(255)     NOT NULL,
+    units    BIGINT           NOT NULL,
+    revenue  DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (sale_day, branch, sku)
+);
+
+CREATE TABLE sales_hourly_rollup (
+    bucket_hour TIMESTAMP(6)     NOT NULL,
+    branch      VARCHAR(255)     NOT NULL,
+    units       BIGINT           NOT NULL,
+    revenue     DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (bucket_hour, branch)
+);
+
+CREATE TABLE sale_idempotency_keys (
+    client_key VARCHAR(100) PRIMARY KEY,
+    sale_id    BIGINT       NOT NULL,
+    user_id    BIGINT       NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+-- Destino de las particiones archivadas (DETACH + SET SCHEMA)
+CREATE SCHEMA IF NOT EXISTS sales_archive;
@@ -0,0 +1,5 @@
+-- Soportan el ORDER BY sold_at DESC, id DESC de la paginación keyset: cada página es un
+-- recorrido de índice desde el cursor, sin ordenar el rango completo.
+-- Creados sobre la tabla particionada, se propagan a cada partición (también a las futuras).
+CREATE INDEX idx_sales_sold_at_id ON sales (sold_at DESC, id DESC);
+CREATE INDEX idx_sales_branch_sold_at_id ON sales (branch, sold_at DESC, id DESC);
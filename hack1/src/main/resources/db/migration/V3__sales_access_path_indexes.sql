@@ -0,0 +1,8 @@
+-- FK sin índice: borrar/consultar ventas de un usuario recorría todas las particiones
+CREATE INDEX idx_sales_created_by ON sales (created_by);
+
+-- Agregación por rango (aggregateBySkuAndBranch, export): index-only scan sin leer el heap
+CREATE INDEX idx_sales_sold_at_covering ON sales (sold_at) INCLUDE (branch, sku, units, price);
+
+-- Rollups: la PK empieza por la fecha; este cubre los filtros por sucursal en rangos largos
+CREATE INDEX idx_sales_daily_rollup_branch_day ON sales_daily_rollup (branch, sale_day);
@@ -0,0 +1,107 @@
+package org.example.hack1.DataSourceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.datasource.ReplicaLagMonitor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+// El atraso se mide contra el LSN actual del primario, no entre los LSN de la propia réplica
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaLagMonitorTest {
+
+    @Mock
+    private JdbcTemplate primary;
+
+    @Mock
+    private JdbcTemplate replica;
+
+    // Test 1: Réplica en streaming que ya aplicó el LSN del primario -> usable con atraso 0
+    @Test
+    void shouldUseReplicaWhenCaughtUpWithPrimary() {
+        primaryAt("0/3000060");
+        replicaStatus(true, true, "0/3000060", 600);
+
+        assertThat(monitor().isUsable()).isTrue();
+    }
+
+    // Test 2: Receptor de WAL desconectado: los LSN de la réplica quedan congelados e iguales entre
+    // sí, pero sin streaming la réplica no se usa aunque el último replay sea reciente
+    @Test
+    void shouldNotUseDisconnectedReplica() {
+        primaryAt("0/9000000");
+        replicaStatus(true, false, "0/3000060", 1);
+
+        assertThat(monitor().isUsable()).isFalse();
+    }
+
+    // Test 3: WAL pendiente: el atraso es la antigüedad del último replay, comparada con maxLag
+    @Test
+    void shouldCompareLagWithMaxLagWhenBehindPrimary() {
+        primaryAt("1/00000010");
+        replicaStatus(true, true, "0/FFFFFFF0", 2);
+        assertThat(monitor().isUsable()).isTrue();
+
+        replicaStatus(true, true, "0/FFFFFFF0", 30);
+        assertThat(monitor().isUsable()).isFalse();
+    }
+
+    // Test 4: Una réplica que se reconecta y se pone al día vuelve a usarse; si no responde, primario
+    @Test
+    void shouldRecoverAfterReconnectAndFallBackOnErrors() {
+        primaryAt("0/5000000");
+        replicaStatus(true, false, "0/4000000", 1);
+        ReplicaLagMonitor monitor = monitor();
+        assertThat(monitor.isUsable()).isFalse();
+
+        replicaStatus(true, true, "0/5000000", 1);
+        monitor.check();
+        assertThat(monitor.isUsable()).isTrue();
+
+        when(replica.queryForMap(anyString())).thenThrow(new DataAccessResourceFailureException("réplica caída"));
+        monitor.check();
+        assertThat(monitor.isUsable()).isFalse();
+    }
+
+    // Test 5: Una base que no está en recovery (sustituto local) se usa sin comparar LSN
+    @Test
+    void shouldUseNonReplicaSubstitute() {
+        primaryAt("0/9000000");
+        replicaStatus(false, false, null, 0);
+
+        assertThat(monitor().isUsable()).isTrue();
+    }
+
+    private ReplicaLagMonitor monitor() {
+        return new ReplicaLagMonitor(primary, replica, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    private void primaryAt(String lsn) {
+        when(primary.queryForObject(anyString(), eq(String.class))).thenReturn(lsn);
+    }
+
+    private void replicaStatus(boolean inRecovery, boolean streaming, String replayLsn, long replayAgeSeconds) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("in_recovery", inRecovery);
+        status.put("streaming", streaming);
+        status.put("replay_lsn", replayLsn);
+        status.put("replay_age", BigDecimal.valueOf(replayAgeSeconds));
+        when(replica.queryForMap(anyString())).thenReturn(status);
+    }
+}
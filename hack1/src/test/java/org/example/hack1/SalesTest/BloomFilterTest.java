@@ -0,0 +1,48 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    // Test 1: Nunca hay falsos negativos para claves agregadas
+    @Test
+    void shouldContainEveryInsertedKey() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("POS-7-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("POS-7-" + i)).isTrue();
+        }
+    }
+
+    // Test 2: La tasa de falsos positivos se mantiene cerca de la configurada
+    @Test
+    void shouldKeepFalsePositiveRateNearConfigured() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("POS-7-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("POS-9-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    // Test 3: Parámetros inválidos
+    @Test
+    void shouldRejectInvalidParameters() {
+        assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(100, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
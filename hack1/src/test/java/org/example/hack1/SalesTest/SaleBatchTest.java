@@ -0,0 +1,256 @@
+package org.example.hack1.SalesTest;
+
+import jakarta.validation.Validation;
+import org.example.hack1.sale.application.SaleController;
+import org.example.hack1.sale.domain.IdempotencyKeyFilter;
+import org.example.hack1.sale.domain.Sale;
+import org.example.hack1.sale.domain.SaleIdempotencyKey;
+import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.domain.SalesCountEstimator;
+import org.example.hack1.sale.domain.SalesPartitionService;
+import org.example.hack1.sale.domain.SalesRollupService;
+import org.example.hack1.sale.repo.SaleIdempotencyKeyRepository;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.SecurityUtils;
+import org.example.hack1.user.domain.User;
+import org.example.hack1.user.domain.UserRole;
+import org.example.hack1.user.repo.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /sales/batch de punta a punta sobre el controlador real y SaleService con repositorios mockeados:
+// validación por ítem, resultado parcial y códigos 201/207
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SaleBatchTest {
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SalesRollupService rollupService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SaleIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private IdempotencyKeyFilter idempotencyKeyFilter;
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SalesCountEstimator countEstimator;
+
+    @Mock
+    private SalesPartitionService partitionService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        SaleService saleService = new SaleService(saleRepository, userRepository, rollupService, eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(), idempotencyKeyRepository,
+                idempotencyKeyFilter, jdbcTemplate, countEstimator, partitionService);
+        ReflectionTestUtils.setField(saleService, "maxBatchSize", 1000);
+
+        SaleController controller = new SaleController();
+        ReflectionTestUtils.setField(controller, "saleService", saleService);
+        ReflectionTestUtils.setField(controller, "securityUtils", new SecurityUtils());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("miraflores_user");
+        when(userRepository.getReferenceById(anyLong())).thenReturn(user);
+        when(userRepository.findByUsername("miraflores_user")).thenReturn(Optional.of(user));
+        AtomicLong ids = new AtomicLong(100);
+        when(saleRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Sale> sales = invocation.getArgument(0);
+            sales.forEach(sale -> sale.setId(ids.incrementAndGet()));
+            return sales;
+        });
+        // Por defecto ninguna clave estaba registrada: el INSERT las devuelve todas
+        when(jdbcTemplate.queryForList(eq(SaleIdempotencyKeyRepository.INSERT_ALL_IF_ABSENT_SQL),
+                any(SqlParameterSource.class), eq(String.class)))
+                .thenAnswer(invocation -> List.of((String[]) invocation.<SqlParameterSource>getArgument(1).getValue("clientKeys")));
+
+        authenticate(new JwtPrincipal(7L, "miraflores_user", UserRole.BRANCH, "Miraflores",
+                Instant.now().plusSeconds(3600)));
+    }
+
+    private static void authenticate(JwtPrincipal principal) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + principal.role().name()))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // Test 1: todas válidas -> 201 y un id por ítem
+    @Test
+    void shouldReturnCreatedWhenEveryItemIsValid() throws Exception {
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores"},
+                         {"sku":"OREO_DOUBLE","units":1,"price":2.0,"branch":"Miraflores"}]"""))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.results[0].id").value(101))
+                .andExpect(jsonPath("$.results[1].id").value(102));
+        verify(saleRepository).saveAll(argThat(sales -> ((List<?>) sales).size() == 2));
+    }
+
+    // Test 2: ítems inválidos se reportan por índice, el resto se guarda y la respuesta es 207
+    @Test
+    void shouldReportPerIndexErrorsWithMultiStatus() throws Exception {
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores"},
+                         {"sku":"OREO_CLASSIC","units":0,"price":1.5,"branch":"Miraflores"},
+                         {"sku":"OREO_CLASSIC","units":1,"price":1.5,"branch":"San Isidro"}]"""))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[0].id").value(101))
+                .andExpect(jsonPath("$.results[0].errors").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].id").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].errors[0]", containsString("units")))
+                .andExpect(jsonPath("$.results[2].errors", hasItem("Solo puedes crear ventas para tu sucursal: Miraflores")));
+        verify(saleRepository).saveAll(argThat(sales -> ((List<?>) sales).size() == 1));
+    }
+
+    // Test 3: clientSaleId repetido dentro del lote: solo la primera aparición se guarda
+    @Test
+    void shouldRejectDuplicateClientSaleIdWithinBatch() throws Exception {
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores","clientSaleId":"pos-1"},
+                         {"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores","clientSaleId":"pos-1"}]"""))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].errors[0]").value("clientSaleId repetido dentro del lote: pos-1"));
+    }
+
+    // Test 4: lote vacío -> 400
+    @Test
+    void shouldRejectEmptyBatch() throws Exception {
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(saleRepository);
+    }
+
+    // Test 5: Usuario eliminado con el token aún vigente -> 401, sin intentar el INSERT
+    @Test
+    void shouldRejectBatchFromDeletedUser() throws Exception {
+        when(userRepository.findByUsername("miraflores_user")).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores"}]"""))
+                .andExpect(status().isUnauthorized());
+        verify(saleRepository, never()).saveAll(anyList());
+    }
+
+    // Test 6: Usuario BRANCH sin sucursal asignada: cada ítem falla, sin NullPointerException
+    @Test
+    void shouldRejectItemsFromBranchUserWithoutBranch() throws Exception {
+        authenticate(new JwtPrincipal(7L, "miraflores_user", UserRole.BRANCH, null, Instant.now().plusSeconds(3600)));
+
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores"}]"""))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.results[0].errors[0]").value("Tu usuario no tiene sucursal asignada"));
+    }
+
+    // Test 7: Otra petición registró pos-2 entre el lookup inicial y el INSERT de claves: el conflicto no
+    // revierte el lote, la venta duplicada se borra y el ítem se informa como reintento con la venta original
+    @Test
+    void shouldReportKeyInsertConflictAsReplay() throws Exception {
+        when(jdbcTemplate.queryForList(eq(SaleIdempotencyKeyRepository.INSERT_ALL_IF_ABSENT_SQL),
+                any(SqlParameterSource.class), eq(String.class))).thenReturn(List.of("pos-1"));
+        when(idempotencyKeyRepository.findAllById(any())).thenReturn(List.of(), List.of(key("pos-2", 55L, 7L)));
+
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores","clientSaleId":"pos-1"},
+                         {"sku":"OREO_DOUBLE","units":1,"price":2.0,"branch":"Miraflores","clientSaleId":"pos-2"}]"""))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.replayed").value(1))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.results[0].id").value(101))
+                .andExpect(jsonPath("$.results[1].id").value(55))
+                .andExpect(jsonPath("$.results[1].replayed").value(true));
+        verify(saleRepository).deleteAllByIdInBatch(List.of(102L));
+        verify(rollupService).recordSales(argThat(sales -> sales.size() == 1 && sales.iterator().next().getId() == 101L));
+    }
+
+    // Test 8: Si la clave que ganó la carrera es de otro usuario, el ítem falla sin afectar al resto
+    @Test
+    void shouldReportKeyInsertConflictFromOtherUserAsError() throws Exception {
+        when(jdbcTemplate.queryForList(eq(SaleIdempotencyKeyRepository.INSERT_ALL_IF_ABSENT_SQL),
+                any(SqlParameterSource.class), eq(String.class))).thenReturn(List.of("pos-1"));
+        when(idempotencyKeyRepository.findAllById(any())).thenReturn(List.of(), List.of(key("pos-2", 55L, 9L)));
+
+        mockMvc.perform(post("/sales/batch").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"sku":"OREO_CLASSIC","units":2,"price":1.5,"branch":"Miraflores","clientSaleId":"pos-1"},
+                         {"sku":"OREO_DOUBLE","units":1,"price":2.0,"branch":"Miraflores","clientSaleId":"pos-2"}]"""))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].id").value(nullValue()))
+                .andExpect(jsonPath("$.results[1].errors[0]").value("clientSaleId ya usado por otro usuario: pos-2"));
+        verify(saleRepository).deleteAllByIdInBatch(List.of(102L));
+    }
+
+    private static SaleIdempotencyKey key(String clientKey, Long saleId, Long userId) {
+        SaleIdempotencyKey key = new SaleIdempotencyKey();
+        key.setClientKey(clientKey);
+        key.setSaleId(saleId);
+        key.setUserId(userId);
+        return key;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SaleCursor;
+import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.dto.SaleCursorPageDto;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleCursorTest {
+
+    private static final LocalDateTime SOLD_AT = LocalDateTime.of(2025, 9, 1, 10, 30);
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @InjectMocks
+    private SaleService saleService;
+
+    // Test 1: encode/decode conserva soldAt (también microsegundos y segundos en cero) e id
+    @Test
+    void shouldRoundTripCursor() {
+        SaleCursor cursor = new SaleCursor(LocalDateTime.of(2025, 9, 1, 10, 30, 0, 123_456_000), 42L);
+        SaleCursor withoutSeconds = new SaleCursor(SOLD_AT, 7L);
+
+        assertThat(SaleCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(SaleCursor.decode(withoutSeconds.encode())).isEqualTo(withoutSeconds);
+        assertThat(SaleCursor.decode(SaleCursor.START.encode())).isEqualTo(SaleCursor.START);
+        assertThat(cursor.encode()).doesNotContain("=", "+", "/");
+    }
+
+    // Test 2: Cursores alterados o inventados -> 400
+    @ParameterizedTest
+    @ValueSource(strings = {"%%%", "bm8tc2VwYXJhZG9y", "YXllcnw0Mg", "MjAyNS0wOS0wMVQxMDozMHxkb3M"})
+    void shouldRejectMalformedCursor(String cursor) {
+        assertThatThrownBy(() -> SaleCursor.decode(cursor))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    // Test 3: Con varias ventas en el mismo instante, el cursor siguiente lleva el id de la última
+    // entregada y la página siguiente se pide desde (soldAt, id), no solo desde soldAt
+    @Test
+    void shouldContinueFromLastIdWhenSalesShareSoldAt() {
+        when(saleRepository.findResponsesAfter(any(), any(), eq(SaleCursor.START.soldAt()), eq(Long.MAX_VALUE), eq(Limit.of(3))))
+                .thenReturn(List.of(sale(30L), sale(29L), sale(28L)));
+
+        SaleCursorPageDto first = saleService.getSalesAfter(null, null, null, null, 2, false);
+
+        assertThat(first.getContent()).extracting(SaleResponseDto::getId).containsExactly(30L, 29L);
+        assertThat(first.getHasNext()).isTrue();
+        assertThat(SaleCursor.decode(first.getNextCursor())).isEqualTo(new SaleCursor(SOLD_AT, 29L));
+
+        when(saleRepository.findResponsesAfter(any(), any(), eq(SOLD_AT), eq(29L), eq(Limit.of(3))))
+                .thenReturn(List.of(sale(28L)));
+
+        SaleCursorPageDto second = saleService.getSalesAfter(null, null, null, first.getNextCursor(), 2, false);
+
+        assertThat(second.getContent()).extracting(SaleResponseDto::getId).containsExactly(28L);
+        assertThat(second.getHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    // Test 4: Con sucursal se usa la consulta propia de la sucursal
+    @Test
+    void shouldUseBranchQueryWhenBranchIsGiven() {
+        when(saleRepository.findResponsesByBranchAfter(eq("Miraflores"), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(sale(5L)));
+
+        SaleCursorPageDto page = saleService.getSalesAfter("Miraflores", null, null, null, 20, false);
+
+        assertThat(page.getContent()).hasSize(1);
+        verify(saleRepository, never()).findResponsesAfter(any(), any(), any(), any(), any());
+    }
+
+    // Test 5: Un cursor inválido corta antes de consultar
+    @Test
+    void shouldRejectMalformedCursorBeforeQuerying() {
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2025-09-01T10:30".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> saleService.getSalesAfter(null, null, null, tampered, 20, false))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verify(saleRepository, never()).findResponsesAfter(any(), any(), any(), any(), any());
+    }
+
+    private static SaleResponseDto sale(Long id) {
+        return new SaleResponseDto(id, "OREO_CLASSIC", 1, 1.99, "Miraflores", SOLD_AT, "miraflores_user");
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.hack1.SalesTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.hack1.sale.application.SaleController;
+import org.example.hack1.sale.domain.SaleExportService;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.SalesPermissionService;
+import org.example.hack1.security.sec.SecurityUtils;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class SaleExportServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 30);
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Mismos valores por defecto que el ObjectMapper de Spring Boot (fechas ISO, no arrays)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private SaleExportService saleExportService;
+
+    @BeforeEach
+    void setUp() {
+        saleExportService = new SaleExportService(saleRepository, objectMapper, transactionManager, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // Test 1: CSV con cabecera y comillas RFC 4180 solo donde hacen falta; el cursor se cierra al terminar
+    @Test
+    void shouldWriteCsvWithQuotingAndCloseStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(saleRepository.streamResponses(FROM.atStartOfDay(), TO.atTime(23, 59, 59, 999_999_999), null))
+                .thenReturn(Stream.of(
+                        sale(1L, "OREO_CLASSIC", "Miraflores"),
+                        sale(2L, "OREO \"MINI\", 6u", "San Isidro"),
+                        sale(3L, "OREO\nDOBLE", "Miraflores")).onClose(() -> closed.set(true)));
+
+        String csv = export(null, SaleExportService.FORMAT_CSV);
+
+        assertThat(csv).isEqualTo("""
+                id,sku,units,price,branch,soldAt,createdBy
+                1,OREO_CLASSIC,2,1.99,Miraflores,2025-09-01T10:30,central_user
+                2,"OREO ""MINI"", 6u",2,1.99,San Isidro,2025-09-01T10:30,central_user
+                3,"OREO
+                DOBLE",2,1.99,Miraflores,2025-09-01T10:30,central_user
+                """);
+        assertThat(closed).isTrue();
+    }
+
+    // Test 2: NDJSON: un objeto JSON por línea, sin cabecera
+    @Test
+    void shouldWriteOneJsonObjectPerLine() throws IOException {
+        when(saleRepository.streamResponses(any(), any(), eq("Miraflores")))
+                .thenReturn(Stream.of(sale(1L, "OREO_CLASSIC", "Miraflores"), sale(2L, "OREO_DOUBLE", "Miraflores")));
+
+        String ndjson = export("Miraflores", SaleExportService.FORMAT_NDJSON);
+
+        List<String> lines = ndjson.lines().toList();
+        assertThat(lines).hasSize(2);
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertThat(second.get("id").asLong()).isEqualTo(2L);
+        assertThat(second.get("sku").asText()).isEqualTo("OREO_DOUBLE");
+        assertThat(second.get("soldAt").asText()).isEqualTo("2025-09-01T10:30:00");
+    }
+
+    // Test 3: GET /sales/export con Accept-Encoding gzip comprime y un usuario BRANCH solo exporta su
+    // sucursal aunque pida otra por parámetro
+    @Test
+    void shouldGzipAndScopeExportToBranchUser() throws Exception {
+        MockMvc mockMvc = exportMockMvc();
+        when(saleRepository.streamResponses(any(), any(), eq("Miraflores")))
+                .thenReturn(Stream.of(sale(1L, "OREO_CLASSIC", "Miraflores")));
+
+        MvcResult started = mockMvc.perform(get("/sales/export")
+                        .param("from", FROM.toString())
+                        .param("to", TO.toString())
+                        .param("branch", "San Isidro")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(gunzip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("""
+                    id,sku,units,price,branch,soldAt,createdBy
+                    1,OREO_CLASSIC,2,1.99,Miraflores,2025-09-01T10:30,central_user
+                    """);
+        }
+        verify(saleRepository).streamResponses(any(), any(), eq("Miraflores"));
+    }
+
+    // Test 4: Con todos los permisos tomados la exportación responde 503 sin abrir el cursor; el
+    // permiso se devuelve al terminar y la siguiente exportación pasa
+    @Test
+    void shouldRejectExportWhenAllSlotsAreBusy() throws Exception {
+        MockMvc mockMvc = exportMockMvc();
+        when(saleRepository.streamResponses(any(), any(), eq("Miraflores")))
+                .thenReturn(Stream.of(sale(1L, "OREO_CLASSIC", "Miraflores")));
+
+        saleExportService.acquireSlot();
+        mockMvc.perform(get("/sales/export").param("from", FROM.toString()).param("to", TO.toString()))
+                .andExpect(status().isServiceUnavailable());
+        verify(saleRepository, never()).streamResponses(any(), any(), any());
+
+        saleExportService.releaseSlot();
+        MvcResult started = mockMvc.perform(get("/sales/export").param("from", FROM.toString()).param("to", TO.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        // La exportación terminada devolvió su permiso
+        saleExportService.acquireSlot();
+    }
+
+    // Controlador real con un usuario BRANCH de Miraflores autenticado
+    private MockMvc exportMockMvc() {
+        SecurityUtils securityUtils = new SecurityUtils();
+        SalesPermissionService permissionService = new SalesPermissionService();
+        ReflectionTestUtils.setField(permissionService, "securityUtils", securityUtils);
+        SaleController controller = new SaleController();
+        ReflectionTestUtils.setField(controller, "saleExportService", saleExportService);
+        ReflectionTestUtils.setField(controller, "securityUtils", securityUtils);
+        ReflectionTestUtils.setField(controller, "permissionService", permissionService);
+
+        JwtPrincipal principal = new JwtPrincipal(2L, "miraflores_user", UserRole.BRANCH, "Miraflores",
+                Instant.now().plusSeconds(3600));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_BRANCH"))));
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private String export(String branch, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        saleExportService.export(FROM, TO, branch, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static SaleResponseDto sale(Long id, String sku, String branch) {
+        return new SaleResponseDto(id, sku, 2, 1.99, branch, LocalDateTime.of(2025, 9, 1, 10, 30), "central_user");
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.hack1.SalesTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.hack1.sale.domain.SaleImportService;
+import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.dto.SaleBatchItemResultDto;
+import org.example.hack1.sale.dto.SaleBatchResponseDto;
+import org.example.hack1.sale.dto.SaleImportStatusDto;
+import org.example.hack1.sale.dto.SaleRequestDto;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class SaleImportServiceTest {
+
+    private static final JwtPrincipal CENTRAL = new JwtPrincipal(1L, "central_user", UserRole.CENTRAL, null,
+            Instant.now().plusSeconds(3600));
+    private static final JwtPrincipal BRANCH = new JwtPrincipal(2L, "miraflores_user", UserRole.BRANCH, "Miraflores",
+            Instant.now().plusSeconds(3600));
+
+    @Mock
+    private SaleService saleService;
+
+    private SaleImportService saleImportService;
+
+    // Copia de cada bloque recibido: el servicio reutiliza la lista después de guardarlo
+    private final List<List<SaleRequestDto>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        saleImportService = new SaleImportService(saleService, new ObjectMapper().findAndRegisterModules(), 2);
+        lenient().when(saleService.createSalesBatch(anyList(), any(JwtPrincipal.class))).thenAnswer(invocation -> {
+            List<SaleRequestDto> chunk = invocation.getArgument(0);
+            chunks.add(List.copyOf(chunk));
+            return created(chunk.size());
+        });
+    }
+
+    // Test 1: CSV con columnas en otro orden: los campos se ubican por la cabecera
+    @Test
+    void shouldParseCsvFieldsByHeader() throws IOException {
+        SaleImportStatusDto status = importCsv("""
+                branch,soldAt,sku,price,units
+                Miraflores,2025-09-01T10:30:00,OREO_CLASSIC,1.99,12
+                """);
+
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(status.getCreated()).isEqualTo(1);
+        SaleRequestDto request = chunks.get(0).get(0);
+        assertThat(request.getSku()).isEqualTo("OREO_CLASSIC");
+        assertThat(request.getUnits()).isEqualTo(12);
+        assertThat(request.getPrice()).isEqualTo(1.99);
+        assertThat(request.getBranch()).isEqualTo("Miraflores");
+        assertThat(request.getSoldAt()).isEqualTo(LocalDateTime.of(2025, 9, 1, 10, 30));
+    }
+
+    // Test 2: Filas CSV mal formadas se reportan con su número de línea (la cabecera es la 1)
+    @Test
+    void shouldReportInvalidCsvRowsWithLineNumbers() throws IOException {
+        SaleImportStatusDto status = importCsv("""
+                sku,units,price,branch,soldAt
+                OREO_CLASSIC,2,1.99,Miraflores,
+                OREO_CLASSIC,2,1.99
+                OREO_CLASSIC,dos,1.99,Miraflores,
+                OREO_CLASSIC,2,1.99,Miraflores,ayer
+                """);
+
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(status.getLinesRead()).isEqualTo(4);
+        assertThat(status.getCreated()).isEqualTo(1);
+        assertThat(status.getFailed()).isEqualTo(3);
+        assertThat(status.getErrors()).hasSize(3);
+        assertThat(status.getErrors().get(0)).startsWith("Línea 3: formato inválido (se esperaban 5 columnas");
+        assertThat(status.getErrors().get(1)).startsWith("Línea 4: formato inválido");
+        assertThat(status.getErrors().get(2)).isEqualTo("Línea 5: formato inválido (soldAt inválido: ayer)");
+    }
+
+    // Test 3: Cabecera sin columnas obligatorias -> 400 y la importación no queda registrada
+    @Test
+    void shouldRejectCsvWithoutRequiredColumns() {
+        assertThatThrownBy(() -> saleImportService.importSales(body("sku,price,branch\nOREO_CLASSIC,1.99,Miraflores\n"),
+                SaleImportService.CSV, "imp-1", CENTRAL))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getReason()).contains("units");
+                });
+        assertThatThrownBy(() -> saleImportService.getStatus("imp-1", CENTRAL))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        verifyNoInteractions(saleService);
+    }
+
+    // Test 4: NDJSON: una línea inválida no detiene el resto; las líneas en blanco se saltan
+    @Test
+    void shouldReportNdjsonErrorsPerLine() throws IOException {
+        SaleImportStatusDto status = saleImportService.importSales(body("""
+                {"sku":"OREO_CLASSIC","units":2,"price":1.99,"branch":"Miraflores"}
+                {"sku":"OREO_CLASSIC","units":
+
+                {"sku":"OREO_DOUBLE","units":1,"price":2.49,"branch":"Miraflores","soldAt":"2025-09-01T08:00:00"}
+                """), SaleImportService.NDJSON, null, BRANCH);
+
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(status.getLinesRead()).isEqualTo(3);
+        assertThat(status.getCreated()).isEqualTo(2);
+        assertThat(status.getErrors()).singleElement().asString().startsWith("Línea 2: formato inválido");
+        assertThat(chunks.get(0).get(1).getSoldAt()).isEqualTo(LocalDateTime.of(2025, 9, 1, 8, 0));
+    }
+
+    // Test 5: Se guarda en bloques de chunkSize y los errores del lote apuntan a la línea original
+    @Test
+    void shouldFlushInChunksAndMapBatchErrorsToLines() throws IOException {
+        lenient().when(saleService.createSalesBatch(anyList(), any(JwtPrincipal.class)))
+                .thenAnswer(invocation -> {
+                    List<SaleRequestDto> chunk = invocation.getArgument(0);
+                    chunks.add(List.copyOf(chunk));
+                    return created(chunk.size());
+                })
+                .thenAnswer(invocation -> {
+                    List<SaleRequestDto> chunk = invocation.getArgument(0);
+                    chunks.add(List.copyOf(chunk));
+                    return SaleBatchResponseDto.builder()
+                            .received(2).created(1).failed(1).replayed(0)
+                            .results(List.of(
+                                    new SaleBatchItemResultDto(0, 10L, null, false),
+                                    new SaleBatchItemResultDto(1, null, List.of("units: debe ser mayor que 0"), false)))
+                            .build();
+                })
+                .thenAnswer(invocation -> {
+                    List<SaleRequestDto> chunk = invocation.getArgument(0);
+                    chunks.add(List.copyOf(chunk));
+                    return created(chunk.size());
+                });
+
+        StringBuilder ndjson = new StringBuilder();
+        IntStream.rangeClosed(1, 5).forEach(i -> ndjson.append(
+                "{\"sku\":\"SKU_" + i + "\",\"units\":1,\"price\":1.0,\"branch\":\"Miraflores\"}\n"));
+        SaleImportStatusDto status = saleImportService.importSales(body(ndjson.toString()), SaleImportService.NDJSON,
+                null, CENTRAL);
+
+        verify(saleService, times(3)).createSalesBatch(anyList(), any(JwtPrincipal.class));
+        assertThat(chunks).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(chunks.get(2).get(0).getSku()).isEqualTo("SKU_5");
+        assertThat(status.getCreated()).isEqualTo(4);
+        assertThat(status.getFailed()).isEqualTo(1);
+        assertThat(status.getErrors()).containsExactly("Línea 4: units: debe ser mayor que 0");
+    }
+
+    // Test 6: El estado solo lo ve quien inició la importación y el mismo X-Import-Id no choca entre usuarios
+    @Test
+    void shouldScopeImportIdsByUser() throws IOException {
+        saleImportService.importSales(body(""), SaleImportService.NDJSON, "cierre-2025-09-01", BRANCH);
+
+        assertThat(saleImportService.getStatus("cierre-2025-09-01", BRANCH).getStatus()).isEqualTo("COMPLETED");
+        assertThatThrownBy(() -> saleImportService.getStatus("cierre-2025-09-01", CENTRAL))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+
+        SaleImportStatusDto other = saleImportService.importSales(body(""), SaleImportService.NDJSON,
+                "cierre-2025-09-01", CENTRAL);
+        assertThat(other.getStatus()).isEqualTo("COMPLETED");
+        assertThatThrownBy(() -> saleImportService.importSales(body(""), SaleImportService.NDJSON,
+                "cierre-2025-09-01", BRANCH))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    // Test 7: Mientras la importación corre su estado se ve como RUNNING y un reintento con el mismo
+    // X-Import-Id es un 409, no una segunda importación; al terminar sigue disponible
+    @Test
+    void shouldKeepRunningImportVisibleAndRejectConcurrentRetry() throws IOException {
+        List<String> seenWhileRunning = new ArrayList<>();
+        lenient().when(saleService.createSalesBatch(anyList(), any(JwtPrincipal.class))).thenAnswer(invocation -> {
+            List<SaleRequestDto> chunk = invocation.getArgument(0);
+            SaleImportStatusDto current = saleImportService.getStatus("backfill-2024", CENTRAL);
+            seenWhileRunning.add(current.getStatus() + "/" + current.getLinesRead());
+            assertThatThrownBy(() -> saleImportService.importSales(body(""), SaleImportService.NDJSON,
+                    "backfill-2024", CENTRAL))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+            return created(chunk.size());
+        });
+
+        StringBuilder ndjson = new StringBuilder();
+        IntStream.rangeClosed(1, 4).forEach(i -> ndjson.append(
+                "{\"sku\":\"SKU_" + i + "\",\"units\":1,\"price\":1.0,\"branch\":\"Miraflores\"}\n"));
+        saleImportService.importSales(body(ndjson.toString()), SaleImportService.NDJSON, "backfill-2024", CENTRAL);
+
+        assertThat(seenWhileRunning).containsExactly("RUNNING/2", "RUNNING/4");
+        SaleImportStatusDto done = saleImportService.getStatus("backfill-2024", CENTRAL);
+        assertThat(done.getStatus()).isEqualTo("COMPLETED");
+        assertThat(done.getCreated()).isEqualTo(4);
+        assertThat(done.getFinishedAt()).isNotNull();
+    }
+
+    private SaleImportStatusDto importCsv(String csv) throws IOException {
+        return saleImportService.importSales(body(csv), SaleImportService.CSV, null, CENTRAL);
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SaleBatchResponseDto created(int count) {
+        List<SaleBatchItemResultDto> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(new SaleBatchItemResultDto(i, (long) i + 1, null, false));
+        }
+        return SaleBatchResponseDto.builder()
+                .received(count).created(count).failed(0).replayed(0).results(results)
+                .build();
+    }
+}
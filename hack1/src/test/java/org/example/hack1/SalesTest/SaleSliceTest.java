@@ -0,0 +1,180 @@
+package org.example.hack1.SalesTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.hack1.sale.domain.SaleCursor;
+import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.domain.SalesCountEstimator;
+import org.example.hack1.sale.dto.SalePageDto;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleSliceTest {
+
+    private static final LocalDateTime SOLD_AT = LocalDateTime.of(2025, 9, 1, 10, 30);
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private SalesCountEstimator countEstimator;
+
+    @InjectMocks
+    private SaleService saleService;
+
+    // Test 1: Con página siguiente el total estimado se respeta si supera lo ya visto
+    @Test
+    void shouldUseEstimateWhenAboveSeenRows() {
+        Pageable pageable = PageRequest.of(2, 20);
+        stubSlice(pageable, 20, true);
+        when(countEstimator.estimate(null, null, null)).thenReturn(500L);
+
+        SalePageDto page = saleService.getSalesSlice(null, null, null, pageable, true);
+
+        assertThat(page.getHasNext()).isTrue();
+        assertThat(page.getTotalElements()).isEqualTo(500L);
+        assertThat(page.getCountMode()).isEqualTo(SaleService.COUNT_ESTIMATED);
+    }
+
+    // Test 2: Estadísticas viejas (estimado menor a lo visto) con página siguiente -> al menos seen + 1
+    @Test
+    void shouldClampStaleEstimateToSeenPlusOne() {
+        Pageable pageable = PageRequest.of(2, 20);
+        stubSlice(pageable, 20, true);
+        when(countEstimator.estimate(null, null, null)).thenReturn(10L);
+
+        SalePageDto page = saleService.getSalesSlice(null, null, null, pageable, true);
+
+        assertThat(page.getTotalElements()).isEqualTo(61L);
+    }
+
+    // Test 3: En la última página el total es exacto (offset + filas) y no se consulta el estimador
+    @Test
+    void shouldReturnExactTotalOnLastPage() {
+        Pageable pageable = PageRequest.of(3, 20);
+        stubSlice(pageable, 7, false);
+
+        SalePageDto page = saleService.getSalesSlice(null, null, null, pageable, true);
+
+        assertThat(page.getHasNext()).isFalse();
+        assertThat(page.getTotalElements()).isEqualTo(67L);
+        verifyNoInteractions(countEstimator);
+    }
+
+    // Test 4: count=none no estima; las fechas y la sucursal llegan al repositorio y al estimador
+    @Test
+    void shouldPassFiltersAndSkipEstimateWithCountNone() {
+        Pageable pageable = PageRequest.of(0, 20);
+        LocalDate day = LocalDate.of(2025, 9, 1);
+        when(saleRepository.findResponsesSlice(day.atStartOfDay(), day.atTime(LocalTime.MAX), "Miraflores", pageable))
+                .thenReturn(new SliceImpl<>(sales(20), pageable, true));
+
+        SalePageDto page = saleService.getSalesSlice("Miraflores", day, day, pageable, false);
+
+        assertThat(page.getTotalElements()).isNull();
+        assertThat(page.getCountMode()).isEqualTo(SaleService.COUNT_NONE);
+        verifyNoInteractions(countEstimator);
+    }
+
+    // Test 5: Sin filtros el estimador suma reltuples de las particiones; null -> 0
+    @Test
+    void shouldEstimateUnfilteredCountFromReltuples() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SalesCountEstimator estimator = new SalesCountEstimator(jdbcTemplate, new ObjectMapper());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.queryForObject(sql.capture(), eq(Long.class))).thenReturn(1234L, (Long) null);
+
+        assertThat(estimator.estimate(null, null, null)).isEqualTo(1234L);
+        assertThat(estimator.estimate(null, null, null)).isZero();
+        assertThat(sql.getValue()).contains("reltuples", "pg_inherits");
+    }
+
+    // Test 6: Con filtros se lee "Plan Rows" del EXPLAIN, con un parámetro por filtro y en orden
+    @Test
+    void shouldEstimateFilteredCountFromPlanRows() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SalesCountEstimator estimator = new SalesCountEstimator(jdbcTemplate, new ObjectMapper());
+        LocalDateTime start = SOLD_AT.toLocalDate().atStartOfDay();
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.queryForObject(sql.capture(), eq(String.class), eq(start), eq("Miraflores")))
+                .thenReturn("[{\"Plan\": {\"Node Type\": \"Append\", \"Plan Rows\": 57}}]");
+
+        assertThat(estimator.estimate(start, null, "Miraflores")).isEqualTo(57L);
+        assertThat(sql.getValue())
+                .startsWith("EXPLAIN (FORMAT JSON)")
+                .contains("sold_at >= ?", "branch = ?")
+                .doesNotContain("sold_at <= ?");
+    }
+
+    // Test 7: Un plan ilegible no se confunde con un conteo de cero
+    @Test
+    void shouldFailOnUnreadablePlan() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SalesCountEstimator estimator = new SalesCountEstimator(jdbcTemplate, new ObjectMapper());
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), eq("Miraflores"))).thenReturn("no es json");
+
+        assertThatThrownBy(() -> estimator.estimate(null, null, "Miraflores"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // Test 8: Un from sin to filtra igual en los tres modos de GET /sales (count=exact, slice y keyset):
+    // desde el inicio de ese día y sin límite superior
+    @Test
+    void loneFromShouldFilterInEveryPaginationMode() {
+        LocalDate from = LocalDate.of(2025, 9, 1);
+        Pageable pageable = PageRequest.of(0, 20);
+        when(saleRepository.findResponsesBySoldAtBetween(from.atStartOfDay(), SaleCursor.START.soldAt(), pageable))
+                .thenReturn(new PageImpl<>(sales(3), pageable, 3));
+        when(saleRepository.findResponsesSlice(from.atStartOfDay(), SaleCursor.START.soldAt(), null, pageable))
+                .thenReturn(new SliceImpl<>(sales(3), pageable, false));
+        when(saleRepository.findResponsesAfter(from.atStartOfDay(), SaleCursor.START.soldAt(),
+                SaleCursor.START.soldAt(), SaleCursor.START.id(), Limit.of(21)))
+                .thenReturn(sales(3));
+
+        assertThat(saleService.getSales(null, from, null, pageable).getTotalElements()).isEqualTo(3);
+        assertThat(saleService.getSalesSlice(null, from, null, pageable, false).getContent()).hasSize(3);
+        assertThat(saleService.getSalesAfter(null, from, null, null, 20, false).getContent()).hasSize(3);
+        verify(saleRepository, never()).findAllResponses(any());
+    }
+
+    private void stubSlice(Pageable pageable, int rows, boolean hasNext) {
+        when(saleRepository.findResponsesSlice(any(), any(), isNull(), eq(pageable)))
+                .thenReturn(new SliceImpl<>(sales(rows), pageable, hasNext));
+    }
+
+    private static List<SaleResponseDto> sales(int rows) {
+        return LongStream.rangeClosed(1, rows)
+                .mapToObj(id -> new SaleResponseDto(id, "OREO_CLASSIC", 1, 1.99, "Miraflores", SOLD_AT, "miraflores_user"))
+                .toList();
+    }
+}
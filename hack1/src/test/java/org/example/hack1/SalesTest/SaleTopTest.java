@@ -0,0 +1,102 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.application.SaleController;
+import org.example.hack1.sale.domain.HeavyHitter;
+import org.example.hack1.sale.domain.SalesAggregationService;
+import org.example.hack1.sale.domain.SalesVersionTracker;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.SecurityUtils;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /sales/top sobre el controlador real: limit acotado por sales.aggregation.top-n
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SaleTopTest {
+
+    private static final int TOP_N = 10;
+
+    @Mock
+    private SalesAggregationService aggregationService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        SaleController controller = new SaleController();
+        ReflectionTestUtils.setField(controller, "aggregationService", aggregationService);
+        ReflectionTestUtils.setField(controller, "securityUtils", new SecurityUtils());
+        ReflectionTestUtils.setField(controller, "versionTracker", new SalesVersionTracker(null, "", Duration.ZERO));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        List<HeavyHitter> top = IntStream.rangeClosed(1, TOP_N)
+                .mapToObj(i -> new HeavyHitter("SKU_" + i, 100 - i, 0))
+                .toList();
+        when(aggregationService.getTopN()).thenReturn(TOP_N);
+        when(aggregationService.calculateAggregates(any(), any(), isNull()))
+                .thenReturn(new SalesAggregationService.SalesAggregates(1000, 2000.0, "SKU_1", "Miraflores", top, top));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new JwtPrincipal(1L, "central", UserRole.CENTRAL, null, Instant.now().plusSeconds(3600)),
+                null, List.of(new SimpleGrantedAuthority("ROLE_CENTRAL"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // Test 1: Dentro del rango se devuelven exactamente limit entradas
+    @Test
+    void shouldReturnRequestedEntries() throws Exception {
+        mockMvc.perform(get("/sales/top").param("limit", String.valueOf(TOP_N)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topSkus", hasSize(TOP_N)));
+
+        mockMvc.perform(get("/sales/top").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topSkus", hasSize(3)))
+                .andExpect(jsonPath("$.topBranches", hasSize(3)));
+    }
+
+    // Test 2: Más entradas de las que guardan los agregados, o menos de una -> 400 sin calcular nada
+    @Test
+    void shouldRejectLimitOutsideTopN() throws Exception {
+        mockMvc.perform(get("/sales/top").param("limit", String.valueOf(TOP_N + 1)))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("entre 1 y " + TOP_N)));
+        mockMvc.perform(get("/sales/top").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(aggregationService, never()).calculateAggregates(any(), any(), any());
+    }
+}
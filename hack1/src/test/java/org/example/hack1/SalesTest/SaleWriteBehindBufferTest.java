@@ -0,0 +1,166 @@
+package org.example.hack1.SalesTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.sale.domain.DuplicateSaleKeyException;
+import org.example.hack1.sale.domain.SaleService;
+import org.example.hack1.sale.domain.SaleWriteBehindBuffer;
+import org.example.hack1.sale.dto.SaleRequestDto;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleWriteBehindBufferTest {
+
+    private static final JwtPrincipal PRINCIPAL = new JwtPrincipal(2L, "miraflores_user", UserRole.BRANCH, "Miraflores",
+            Instant.now().plusSeconds(3600));
+
+    @Mock
+    private SaleService saleService;
+
+    private SaleWriteBehindBuffer buffer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    // Test 1: Las ventas encoladas juntas se persisten en un solo group commit y cada una recibe su id
+    @Test
+    void shouldPersistQueuedSalesInOneGroupCommit() {
+        when(saleService.createSalesGroup(anyList(), anyList())).thenAnswer(invocation -> {
+            List<SaleRequestDto> requests = invocation.getArgument(0);
+            return requests.stream().map(request -> response(Long.valueOf(request.getSku().substring(4)), request)).toList();
+        });
+        buffer = startBuffer(10, Duration.ofMillis(300));
+
+        CompletableFuture<SaleResponseDto> first = buffer.submit(request("SKU_1", null), PRINCIPAL);
+        CompletableFuture<SaleResponseDto> second = buffer.submit(request("SKU_2", null), PRINCIPAL);
+        CompletableFuture<SaleResponseDto> third = buffer.submit(request("SKU_3", null), PRINCIPAL);
+
+        assertThat(buffer.await(first).getId()).isEqualTo(1L);
+        assertThat(buffer.await(second).getId()).isEqualTo(2L);
+        assertThat(buffer.await(third).getId()).isEqualTo(3L);
+        verify(saleService).createSalesGroup(argThat(requests -> requests.size() == 3), anyList());
+        verify(saleService, never()).createSale(any(), any());
+    }
+
+    // Test 2: Si el grupo falla se reintenta venta por venta; un clientSaleId ya registrado se
+    // responde con la venta original y una venta inválida solo falla ella
+    @Test
+    void shouldFallBackToSingleSalesWhenGroupFails() {
+        SaleRequestDto valid = request("SKU_1", null);
+        SaleRequestDto duplicate = request("SKU_2", "pos-7");
+        SaleRequestDto invalid = request("SKU_3", null);
+        when(saleService.createSalesGroup(anyList(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+        when(saleService.createSale(valid, PRINCIPAL)).thenReturn(response(10L, valid));
+        when(saleService.createSale(duplicate, PRINCIPAL)).thenThrow(new DuplicateSaleKeyException("miraflores_user:pos-7"));
+        when(saleService.findReplay("miraflores_user:pos-7", "miraflores_user")).thenReturn(Optional.of(response(4L, duplicate)));
+        when(saleService.createSale(invalid, PRINCIPAL))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Precio inválido"));
+        buffer = startBuffer(10, Duration.ofMillis(300));
+
+        CompletableFuture<SaleResponseDto> validResult = buffer.submit(valid, PRINCIPAL);
+        CompletableFuture<SaleResponseDto> duplicateResult = buffer.submit(duplicate, PRINCIPAL);
+        CompletableFuture<SaleResponseDto> invalidResult = buffer.submit(invalid, PRINCIPAL);
+
+        assertThat(buffer.await(validResult).getId()).isEqualTo(10L);
+        assertThat(buffer.await(duplicateResult).getId()).isEqualTo(4L);
+        assertThatThrownBy(() -> buffer.await(invalidResult))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThat(invalidResult).isCompletedExceptionally();
+    }
+
+    // Test 3: Con la cola llena la venta se rechaza al instante con 503
+    @Test
+    void shouldRejectWithServiceUnavailableWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(saleService.createSalesGroup(anyList(), anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            List<SaleRequestDto> requests = invocation.getArgument(0);
+            return requests.stream().map(request -> response(1L, request)).toList();
+        });
+        buffer = new SaleWriteBehindBuffer(saleService, new SimpleMeterRegistry(), true,
+                SaleWriteBehindBuffer.ACK_DURABLE, 1, 1, Duration.ofMillis(1), Duration.ofSeconds(5));
+        buffer.start();
+
+        // La primera la toma el flusher (queda bloqueado en el commit), la segunda ocupa la cola
+        buffer.submit(request("SKU_1", null), PRINCIPAL);
+        verify(saleService, timeout(2000)).createSalesGroup(anyList(), anyList());
+        buffer.submit(request("SKU_2", null), PRINCIPAL);
+
+        assertThatThrownBy(() -> buffer.submit(request("SKU_3", null), PRINCIPAL))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        release.countDown();
+    }
+
+    // Test 4: Si el commit individual también falla, el future termina con la excepción y await la propaga
+    @Test
+    void shouldCompleteDurableAckExceptionallyWhenSaleCannotBePersisted() {
+        SaleRequestDto request = request("SKU_1", null);
+        when(saleService.createSalesGroup(anyList(), anyList())).thenThrow(new IllegalStateException("conexión cerrada"));
+        when(saleService.createSale(eq(request), any())).thenThrow(new IllegalStateException("conexión cerrada"));
+        buffer = startBuffer(10, Duration.ofMillis(1));
+
+        CompletableFuture<SaleResponseDto> result = buffer.submit(request, PRINCIPAL);
+
+        assertThatThrownBy(() -> buffer.await(result))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("conexión cerrada");
+        assertThat(result).isCompletedExceptionally();
+    }
+
+    private SaleWriteBehindBuffer startBuffer(int maxGroupSize, Duration maxWait) {
+        SaleWriteBehindBuffer started = new SaleWriteBehindBuffer(saleService, new SimpleMeterRegistry(), true,
+                SaleWriteBehindBuffer.ACK_DURABLE, 100, maxGroupSize, maxWait, Duration.ofSeconds(5));
+        started.start();
+        return started;
+    }
+
+    private static SaleRequestDto request(String sku, String clientSaleId) {
+        SaleRequestDto request = new SaleRequestDto();
+        request.setSku(sku);
+        request.setUnits(1);
+        request.setPrice(1.99);
+        request.setBranch("Miraflores");
+        request.setClientSaleId(clientSaleId);
+        return request;
+    }
+
+    private static SaleResponseDto response(Long id, SaleRequestDto request) {
+        return new SaleResponseDto(id, request.getSku(), request.getUnits(), request.getPrice(),
+                request.getBranch(), null, "miraflores_user");
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SalesAccumulator;
+import org.example.hack1.sale.domain.SalesAggregationService;
+import org.example.hack1.sale.dto.SalesGroupView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Benchmark de asignación de memoria: SalesAccumulator contra la agregación anterior con mapas
+// String -> Long (un Long por merge). Mide bytes asignados por el hilo (ThreadMXBean de HotSpot) sobre
+// 1M filas en memoria, así que no depende de la base de datos. Fuera del build normal:
+// mvn test -Pbenchmark
+@Tag("benchmark")
+class SalesAccumulatorBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int SKUS = 500;
+    private static final int BRANCHES = 40;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static SalesGroupView[] rows;
+
+    @BeforeAll
+    static void setUp() {
+        // Las filas ya vienen con sus Long/Double en caja, como las entrega Hibernate: no se miden
+        rows = new SalesGroupView[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            long units = 1 + i % 300;
+            rows[i] = new Row("SKU_" + i % SKUS, "branch_" + i % BRANCHES, units, units * 2.5);
+        }
+    }
+
+    // Test 1: Mismo resultado y al menos 100 veces menos memoria asignada que la versión con mapas
+    @Test
+    void accumulatorShouldAllocateFarLessThanBoxedMaps() {
+        SalesAggregationService.SalesAggregates expected = boxedMaps();
+        SalesAggregationService.SalesAggregates actual = accumulator();
+        assertThat(actual.getTotalUnits()).isEqualTo(expected.getTotalUnits());
+        assertThat(actual.getTopSku()).isEqualTo(expected.getTopSku());
+        assertThat(actual.getTopBranch()).isEqualTo(expected.getTopBranch());
+
+        long boxedBytes = allocatedBytes(SalesAccumulatorBenchmarkTest::boxedMaps);
+        long accumulatorBytes = allocatedBytes(SalesAccumulatorBenchmarkTest::accumulator);
+
+        System.out.printf("Asignado por pasada sobre %,d filas: mapas %,d bytes, SalesAccumulator %,d bytes%n",
+                ROWS, boxedBytes, accumulatorBytes);
+        assertThat(accumulatorBytes * 100).isLessThan(boxedBytes);
+    }
+
+    private static SalesAggregationService.SalesAggregates accumulator() {
+        SalesAccumulator accumulator = new SalesAccumulator();
+        for (SalesGroupView row : rows) {
+            accumulator.add(row);
+        }
+        return accumulator.toAggregates();
+    }
+
+    // La agregación que reemplazó SalesAccumulator
+    private static SalesAggregationService.SalesAggregates boxedMaps() {
+        int totalUnits = 0;
+        double totalRevenue = 0.0;
+        Map<String, Long> unitsBySku = new HashMap<>();
+        Map<String, Long> unitsByBranch = new HashMap<>();
+        for (SalesGroupView row : rows) {
+            totalUnits += row.getUnits();
+            totalRevenue += row.getRevenue();
+            unitsBySku.merge(row.getSku(), row.getUnits(), Long::sum);
+            unitsByBranch.merge(row.getBranch(), row.getUnits(), Long::sum);
+        }
+        return new SalesAggregationService.SalesAggregates(totalUnits, totalRevenue,
+                topKey(unitsBySku), topKey(unitsByBranch));
+    }
+
+    private static String topKey(Map<String, Long> unitsByKey) {
+        return unitsByKey.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse("N/A");
+    }
+
+    // Promedio por pasada, tras calentar el JIT
+    private static long allocatedBytes(Supplier<SalesAggregationService.SalesAggregates> aggregation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            aggregation.get();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            aggregation.get();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_ROUNDS;
+    }
+
+    private record Row(String sku, String branch, Long units, Double revenue) implements SalesGroupView {
+        @Override
+        public String getSku() {
+            return sku;
+        }
+
+        @Override
+        public String getBranch() {
+            return branch;
+        }
+
+        @Override
+        public Long getUnits() {
+            return units;
+        }
+
+        @Override
+        public Double getRevenue() {
+            return revenue;
+        }
+    }
+}
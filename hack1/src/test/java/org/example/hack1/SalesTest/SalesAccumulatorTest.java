@@ -0,0 +1,56 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SalesAccumulator;
+import org.example.hack1.sale.domain.SalesAggregationService;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesAccumulatorTest {
+
+    // Test 1: Acumulador vacío
+    @Test
+    void shouldReturnEmptyAggregatesWhenNothingWasAdded() {
+        SalesAggregationService.SalesAggregates result = new SalesAccumulator().toAggregates();
+
+        assertThat(result.getTotalUnits()).isEqualTo(0);
+        assertThat(result.getTotalRevenue()).isEqualTo(0.0);
+        assertThat(result.getTopSku()).isEqualTo("N/A");
+        assertThat(result.getTopBranch()).isEqualTo("N/A");
+    }
+
+    // Test 2: Una sola pasada con claves repetidas
+    @Test
+    void shouldAccumulateUnitsPerSkuAndBranchInOnePass() {
+        SalesAccumulator accumulator = new SalesAccumulator();
+        accumulator.add("OREO_CLASSIC", "Miraflores", 10, 19.90);
+        accumulator.add("OREO_DOUBLE", "San Isidro", 15, 37.35);
+        accumulator.add("OREO_CLASSIC", "San Isidro", 8, 15.92);
+
+        SalesAggregationService.SalesAggregates result = accumulator.toAggregates();
+
+        // OREO_CLASSIC: 18 vs OREO_DOUBLE: 15 / San Isidro: 23 vs Miraflores: 10
+        assertThat(result.getTotalUnits()).isEqualTo(33);
+        assertThat(result.getTopSku()).isEqualTo("OREO_CLASSIC");
+        assertThat(result.getTopBranch()).isEqualTo("San Isidro");
+    }
+
+    // Test 3: Combinar particiones da lo mismo que una sola pasada
+    @Test
+    void shouldMergePartitionsWithDifferentDictionaries() {
+        SalesAccumulator left = new SalesAccumulator();
+        left.add("OREO_THINS", "Surco", 5, 10.95);
+        left.add("OREO_CLASSIC", "Miraflores", 10, 19.90);
+
+        SalesAccumulator right = new SalesAccumulator();
+        right.add("OREO_CLASSIC", "Miraflores", 4, 7.96);
+        right.add("OREO_THINS", "Surco", 12, 26.28);
+
+        SalesAggregationService.SalesAggregates result = left.merge(right).toAggregates();
+
+        // OREO_THINS: 17 vs OREO_CLASSIC: 14
+        assertThat(result.getTotalUnits()).isEqualTo(31);
+        assertThat(result.getTopSku()).isEqualTo("OREO_THINS");
+        assertThat(result.getTopBranch()).isEqualTo("Surco");
+    }
+}
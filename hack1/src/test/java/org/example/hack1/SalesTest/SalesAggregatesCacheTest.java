@@ -0,0 +1,133 @@
+package org.example.hack1.SalesTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.sale.domain.SalesAggregatesCache;
+import org.example.hack1.sale.domain.SalesAggregationService;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SalesAggregatesCacheTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 7);
+
+    private SalesAggregatesCache aggregatesCache;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        aggregatesCache = new SalesAggregatesCache(new SimpleMeterRegistry(), null, "", Duration.ZERO, 100, Duration.ofMinutes(10));
+        loads = new AtomicInteger();
+    }
+
+    // Test 1: Sin escrituras la segunda consulta sale del caché
+    @Test
+    void shouldServeSecondCallFromCache() {
+        aggregatesCache.get(FROM, TO, "Miraflores", this::load);
+        aggregatesCache.get(FROM, TO, "Miraflores", this::load);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    // Test 2: Una venta registrada entre el cálculo y el put no deja el resultado viejo en caché
+    @Test
+    void shouldNotKeepResultWhenSaleChangesDuringLoad() {
+        aggregatesCache.get(FROM, TO, "Miraflores", () -> {
+            SalesAggregationService.SalesAggregates stale = load();
+            aggregatesCache.onSaleChanged(new SaleChangedEvent("Miraflores", FROM.plusDays(2).atTime(10, 0)));
+            return stale;
+        });
+        aggregatesCache.get(FROM, TO, "Miraflores", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    // Test 3: Escrituras concurrentes con cargas: tras la última escritura no queda ninguna entrada
+    // calculada antes de ella
+    @Test
+    void shouldNeverCacheResultOlderThanLastWrite() throws InterruptedException {
+        AtomicInteger version = new AtomicInteger();
+        for (int round = 0; round < 200; round++) {
+            Thread reader = new Thread(() -> aggregatesCache.get(FROM, TO, null, () -> aggregates(version.get())));
+            Thread writer = new Thread(() -> {
+                version.incrementAndGet();
+                aggregatesCache.onSaleChanged(new SaleChangedEvent("Miraflores", FROM.atTime(9, 0)));
+            });
+            reader.start();
+            writer.start();
+            reader.join();
+            writer.join();
+
+            int current = version.get();
+            SalesAggregationService.SalesAggregates served =
+                    aggregatesCache.get(FROM, TO, null, () -> aggregates(current));
+            assertThat(served.getTotalUnits()).isEqualTo(current);
+        }
+    }
+
+    // Test 4: Con réplica, un reporte leído de la réplica antes de que aplicara la venta se descarta
+    // en la segunda invalidación, pasado el max-lag
+    @Test
+    void shouldInvalidateAgainAfterReplicaMaxLag() {
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        SalesAggregatesCache replicaCache = new SalesAggregatesCache(new SimpleMeterRegistry(), taskScheduler,
+                "jdbc:postgresql://replica/hack1", Duration.ofSeconds(5), 100, Duration.ofMinutes(10));
+
+        replicaCache.onSaleChanged(new SaleChangedEvent("Miraflores", FROM.atTime(9, 0)));
+        replicaCache.get(FROM, TO, "Miraflores", this::load);
+        replicaCache.get(FROM, TO, "Miraflores", this::load);
+        assertThat(loads).hasValue(1);
+
+        ArgumentCaptor<Runnable> delayed = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(delayed.capture(), any(Instant.class));
+        delayed.getValue().run();
+        replicaCache.get(FROM, TO, "Miraflores", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    // Test 5: Escrituras de otra sucursal o de un día fuera del rango durante el cálculo no impiden
+    // guardarlo; una del mismo rango y sucursal sí
+    @Test
+    void shouldCacheResultWhenUnrelatedSaleChangesDuringLoad() {
+        aggregatesCache.get(FROM, TO, "Miraflores", () -> {
+            SalesAggregationService.SalesAggregates result = load();
+            aggregatesCache.onSaleChanged(new SaleChangedEvent("San Isidro", FROM.plusDays(2).atTime(10, 0)));
+            aggregatesCache.onSaleChanged(new SaleChangedEvent("Miraflores", TO.plusDays(1).atTime(10, 0)));
+            return result;
+        });
+        aggregatesCache.get(FROM, TO, "Miraflores", this::load);
+        assertThat(loads).hasValue(1);
+
+        // El reporte de todas las sucursales sí cubre la venta de San Isidro
+        aggregatesCache.get(FROM, TO, null, () -> {
+            SalesAggregationService.SalesAggregates result = load();
+            aggregatesCache.onSaleChanged(new SaleChangedEvent("San Isidro", FROM.atTime(10, 0)));
+            return result;
+        });
+        aggregatesCache.get(FROM, TO, null, this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    private SalesAggregationService.SalesAggregates load() {
+        return aggregates(loads.incrementAndGet());
+    }
+
+    private static SalesAggregationService.SalesAggregates aggregates(int units) {
+        return new SalesAggregationService.SalesAggregates(units, units * 2.0, "OREO_CLASSIC", "Miraflores");
+    }
+}
@@ -1,20 +1,36 @@
 package org.example.hack1.SalesTest;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.hack1.sale.domain.Sale;
+import org.example.hack1.sale.domain.SalesAggregatesCache;
 import org.example.hack1.sale.domain.SalesAggregationService;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.example.hack1.sale.dto.SalesGroupView;
 import org.example.hack1.sale.repo.SaleRepository;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,9 +39,31 @@ class SalesAggregationServiceTest {
     @Mock
     private SaleRepository saleRepository;
 
-    @InjectMocks
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ForkJoinPool salesAggregationPool;
+
+    private SalesAggregatesCache aggregatesCache;
+
     private SalesAggregationService salesAggregationService;
 
+    @BeforeEach
+    void setUp() {
+        salesAggregationPool = new ForkJoinPool(2);
+        aggregatesCache = new SalesAggregatesCache(new SimpleMeterRegistry(), null, "", Duration.ZERO, 100, Duration.ofMinutes(10));
+        salesAggregationService = new SalesAggregationService(
+                saleRepository, rollupRepository, transactionManager, salesAggregationPool, aggregatesCache, 7, 5, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesAggregationPool.shutdownNow();
+    }
+
     // Test 1: Agregados con datos válidos - CORREGIDO
     @Test
     void shouldCalculateCorrectAggregatesWithValidData() {
@@ -36,8 +74,8 @@ class SalesAggregationServiceTest {
                 createSale("OREO_CLASSIC", 15, 1.99, "Miraflores")
         );
 
-        when(saleRepository.findSalesInDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockSales);
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(groupBySkuAndBranch(mockSales, null));
 
         // When
         SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
@@ -59,8 +97,8 @@ class SalesAggregationServiceTest {
     void shouldHandleEmptySalesList() {
         // Given
         List<Sale> mockSales = List.of();
-        when(saleRepository.findSalesInDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockSales);
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(groupBySkuAndBranch(mockSales, null));
 
         // When
         SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
@@ -85,8 +123,8 @@ class SalesAggregationServiceTest {
                 createSale("OREO_CLASSIC", 12, 1.99, "San Isidro")
         );
 
-        when(saleRepository.findSalesInDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockSales);
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), eq("Miraflores")))
+                .thenReturn(groupBySkuAndBranch(mockSales, "Miraflores"));
 
         // When - Filtrar solo por Miraflores
         SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
@@ -111,8 +149,8 @@ class SalesAggregationServiceTest {
                 createSale("OREO_DOUBLE", 5, 2.49, "San Isidro")
         );
 
-        when(saleRepository.findSalesInDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockSales);
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(groupBySkuAndBranch(mockSales, null));
 
         // When
         SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
@@ -140,8 +178,8 @@ class SalesAggregationServiceTest {
                 createSale("OREO_THINS", 8, 2.19, "San Isidro")
         );
 
-        when(saleRepository.findSalesInDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(mockSales);
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(groupBySkuAndBranch(mockSales, null));
 
         // When
         SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
@@ -159,6 +197,76 @@ class SalesAggregationServiceTest {
         assertThat(result.getTopBranch()).isEqualTo("San Isidro");
     }
 
+    // Test 6: Días cerrados desde el rollup + día en curso desde filas crudas
+    @Test
+    void shouldCombineDailyRollupWithCurrentDay() {
+        // Given - El rollup ya tiene los días anteriores, hoy solo está en la tabla de ventas
+        LocalDate today = LocalDate.now();
+        when(rollupRepository.aggregateBySkuAndBranch(today.minusDays(7), today.minusDays(1), null))
+                .thenReturn(groupBySkuAndBranch(List.of(
+                        createSale("OREO_DOUBLE", 20, 2.49, "San Isidro")
+                ), null));
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(groupBySkuAndBranch(List.of(
+                        createSale("OREO_CLASSIC", 10, 1.99, "Miraflores")
+                ), null));
+
+        // When
+        SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(
+                today.minusDays(7), today, null
+        );
+
+        // Then - 20 + 10 unidades; OREO_DOUBLE lidera gracias al rollup
+        assertThat(result.getTotalUnits()).isEqualTo(30);
+        assertThat(result.getTopSku()).isEqualTo("OREO_DOUBLE");
+        assertThat(result.getTopBranch()).isEqualTo("San Isidro");
+    }
+
+    // Test 7: Rango largo partido en semanas y combinado al final
+    @Test
+    void shouldMergeWeeklyPartitionsOfLongRange() {
+        // Given - 21 días cerrados => 3 particiones de 7 días sobre el rollup
+        LocalDate to = LocalDate.now().minusDays(1);
+        LocalDate from = to.minusDays(20);
+        when(rollupRepository.aggregateBySkuAndBranch(from, from.plusDays(6), null))
+                .thenReturn(groupBySkuAndBranch(List.of(createSale("OREO_CLASSIC", 10, 1.99, "Miraflores")), null));
+        when(rollupRepository.aggregateBySkuAndBranch(from.plusDays(7), from.plusDays(13), null))
+                .thenReturn(groupBySkuAndBranch(List.of(createSale("OREO_DOUBLE", 8, 2.49, "San Isidro")), null));
+        when(rollupRepository.aggregateBySkuAndBranch(from.plusDays(14), to, null))
+                .thenReturn(groupBySkuAndBranch(List.of(createSale("OREO_DOUBLE", 7, 2.49, "Miraflores")), null));
+
+        // When
+        SalesAggregationService.SalesAggregates result = salesAggregationService.calculateAggregates(from, to, null);
+
+        // Then - OREO_DOUBLE: 15 vs OREO_CLASSIC: 10 / Miraflores: 17 vs San Isidro: 8
+        assertThat(result.getTotalUnits()).isEqualTo(25);
+        assertThat(result.getTopSku()).isEqualTo("OREO_DOUBLE");
+        assertThat(result.getTopBranch()).isEqualTo("Miraflores");
+    }
+
+    // Test 8: Segunda consulta desde caché, invalidada por una venta dentro de la ventana
+    @Test
+    void shouldServeFromCacheUntilSaleInWindowChanges() {
+        // Given
+        LocalDate today = LocalDate.now();
+        when(saleRepository.aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), eq("Miraflores")))
+                .thenAnswer(invocation -> groupBySkuAndBranch(List.of(
+                        createSale("OREO_CLASSIC", 10, 1.99, "Miraflores")
+                ), "Miraflores"));
+
+        // When - Dos consultas iguales, luego una venta en otra sucursal y otra en Miraflores
+        salesAggregationService.calculateAggregates(today, today, "Miraflores");
+        salesAggregationService.calculateAggregates(today, today, "Miraflores");
+        aggregatesCache.onSaleChanged(new SaleChangedEvent("San Isidro", LocalDateTime.now()));
+        salesAggregationService.calculateAggregates(today, today, "Miraflores");
+        aggregatesCache.onSaleChanged(new SaleChangedEvent("Miraflores", LocalDateTime.now()));
+        salesAggregationService.calculateAggregates(today, today, "Miraflores");
+
+        // Then - Solo la primera consulta y la posterior a la venta de Miraflores van a la base
+        verify(saleRepository, times(2))
+                .aggregateBySkuAndBranch(any(LocalDateTime.class), any(LocalDateTime.class), eq("Miraflores"));
+    }
+
     // Método helper para crear ventas de prueba
     private Sale createSale(String sku, int units, double price, String branch) {
         Sale sale = new Sale();
@@ -169,4 +277,40 @@ class SalesAggregationServiceTest {
         sale.setSoldAt(LocalDateTime.now());
         return sale;
     }
-}
\ No newline at end of file
+
+    // Emula el GROUP BY (sku, branch) y el filtro por branch que hace la base de datos
+    private Stream<SalesGroupView> groupBySkuAndBranch(List<Sale> sales, String branch) {
+        Map<String, GroupRow> groups = new LinkedHashMap<>();
+        for (Sale sale : sales) {
+            if (branch != null && !branch.equals(sale.getBranch())) {
+                continue;
+            }
+            groups.computeIfAbsent(sale.getSku() + "|" + sale.getBranch(),
+                            key -> new GroupRow(sale.getSku(), sale.getBranch()))
+                    .add(sale.getUnits(), sale.getUnits() * sale.getPrice());
+        }
+        return List.<SalesGroupView>copyOf(groups.values()).stream();
+    }
+
+    private static class GroupRow implements SalesGroupView {
+        private final String sku;
+        private final String branch;
+        private long units;
+        private double revenue;
+
+        GroupRow(String sku, String branch) {
+            this.sku = sku;
+            this.branch = branch;
+        }
+
+        void add(int units, double revenue) {
+            this.units += units;
+            this.revenue += revenue;
+        }
+
+        public String getSku() { return sku; }
+        public String getBranch() { return branch; }
+        public Long getUnits() { return units; }
+        public Double getRevenue() { return revenue; }
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SalesPartitionService;
+import org.example.hack1.sale.domain.event.AllSalesChangedEvent;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Particiones bajo demanda para ventas con fecha pasada y archivo de meses recreados. Necesita Docker.
+@Testcontainers(disabledWithoutDocker = true)
+class SalesPartitionServiceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static SalesPartitionService partitionService;
+    private static final List<Object> events = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        partitionService = new SalesPartitionService(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), events::add, true, 1, 0, "sales_archive");
+        partitionService.maintainPartitions();
+        jdbcTemplate.update("INSERT INTO users (username, email, password, user_role, branch) " +
+                "VALUES ('u1', 'u1@oreo.com', 'x', 'BRANCH', 'Miraflores')");
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM sales");
+    }
+
+    private static void insertSale(long id, LocalDateTime soldAt) {
+        jdbcTemplate.update("INSERT INTO sales (id, sku, units, price, branch, sold_at, created_by) " +
+                "VALUES (?, 'OREO_CLASSIC', 1, 2.5, 'Miraflores', ?, (SELECT min(id) FROM users))",
+                id, Timestamp.valueOf(soldAt));
+    }
+
+    private static long countIn(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+
+    // Test 1: una venta de un mes sin partición se crea en la suya, no en sales_default
+    @Test
+    void ensurePartitionsShouldCreatePastMonthBeforeInsert() {
+        LocalDateTime soldAt = LocalDateTime.now().minusYears(2);
+        partitionService.ensurePartitions(List.of(soldAt));
+        insertSale(1, soldAt);
+
+        assertThat(countIn("sales_p" + YearMonth.from(soldAt).toString().replace('-', '_'))).isEqualTo(1);
+        assertThat(countIn("sales_default")).isZero();
+    }
+
+    // Test 2: filas que ya estaban en sales_default se mueven a la partición al crearla
+    @Test
+    void maintenanceShouldDrainDefaultPartition() {
+        LocalDateTime soldAt = LocalDateTime.now().minusYears(3);
+        insertSale(2, soldAt);
+        assertThat(countIn("sales_default")).isEqualTo(1);
+
+        partitionService.maintainPartitions();
+
+        assertThat(countIn("sales_default")).isZero();
+        assertThat(countIn("sales_p" + YearMonth.from(soldAt).toString().replace('-', '_'))).isEqualTo(1);
+        assertThat(countIn("sales")).isEqualTo(1);
+    }
+
+    // Test 3: un mes archivado que se recrea por una venta vieja se vuelve a archivar sumando sus filas
+    @Test
+    void archiveShouldMergeRecreatedMonthIntoArchivedTable() {
+        LocalDateTime soldAt = LocalDateTime.now().minusYears(4);
+        String partition = "sales_p" + YearMonth.from(soldAt).toString().replace('-', '_');
+        YearMonth firstKept = YearMonth.from(soldAt).plusMonths(1);
+
+        partitionService.ensurePartitions(List.of(soldAt));
+        insertSale(3, soldAt);
+        assertThat(partitionService.archivePartitionsBefore(firstKept)).contains(partition);
+
+        partitionService.ensurePartitions(List.of(soldAt));
+        insertSale(4, soldAt);
+        assertThat(partitionService.archivePartitionsBefore(firstKept)).contains(partition);
+
+        assertThat(countIn("sales_archive." + partition)).isEqualTo(2);
+        assertThat(countIn("sales")).isZero();
+        // Cada archivado avisa para que los ETags de todas las sucursales cambien
+        assertThat(events).filteredOn(AllSalesChangedEvent.class::isInstance).hasSizeGreaterThanOrEqualTo(2);
+    }
+
+    // Test 4: con una lectura abierta sobre sales (p. ej. una exportación) el archivado desiste por
+    // lock_timeout en vez de quedar en cola delante de los INSERT; la partición sigue adjunta
+    @Test
+    void archiveShouldGiveUpWhileSalesIsLocked() throws Exception {
+        LocalDateTime soldAt = LocalDateTime.now().minusYears(5);
+        String partition = "sales_p" + YearMonth.from(soldAt).toString().replace('-', '_');
+        partitionService.ensurePartitions(List.of(soldAt));
+        insertSale(5, soldAt);
+
+        try (Connection reader = DriverManager.getConnection(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())) {
+            reader.setAutoCommit(false);
+            try (Statement statement = reader.createStatement()) {
+                statement.execute("SELECT count(*) FROM sales");
+            }
+
+            long start = System.nanoTime();
+            List<String> archived = partitionService.archivePartitionsBefore(YearMonth.from(soldAt).plusMonths(1));
+
+            assertThat(archived).isEmpty();
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+            reader.rollback();
+        }
+
+        assertThat(partitionService.listPartitions()).contains(partition);
+        assertThat(countIn("sales")).isEqualTo(1);
+    }
+}
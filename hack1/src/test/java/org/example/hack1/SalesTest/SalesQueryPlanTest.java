@@ -0,0 +1,353 @@
+package org.example.hack1.SalesTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.hack1.sale.domain.SaleCursor;
+import org.example.hack1.sale.domain.SalesPartitionService;
+import org.example.hack1.sale.dto.SaleResponseDto;
+import org.example.hack1.sale.repo.SaleRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Regresión de planes: corre EXPLAIN sobre el esquema real (migraciones Flyway, tabla particionada)
+// con una tabla sales grande y sintética, y falla si algún camino de acceso de SaleRepository
+// vuelve a un Seq Scan sobre sales. Cada test llama al método real del repositorio (Hibernate con la
+// configuración de Spring Boot), graba el SQL y los parámetros que llegan al driver y corre EXPLAIN sobre
+// exactamente eso. También verifica el recorrido keyset y el mapeo de la proyección a SaleResponseDto
+// sobre esos datos. Necesita Docker; sin Docker se omite.
+@Testcontainers(disabledWithoutDocker = true)
+class SalesQueryPlanTest {
+
+    private static final int SALES = 300_000;
+    private static final int USERS = 100;
+    private static final int BRANCHES = 50;
+    private static final int DAYS = 180;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static SaleRepository saleRepository;
+    private static TransactionTemplate readOnlyTransaction;
+    private static final List<RecordedStatement> recorded = new CopyOnWriteArrayList<>();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static LocalDateTime dayStart;
+    private static LocalDateTime dayEnd;
+    private static LocalDateTime weekStart;
+    // Particiones con datos: en las vacías (sales_default, meses futuros) un Seq Scan es lo correcto
+    private static Set<String> populatedPartitions;
+
+    @BeforeAll
+    static void setUp() {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        SalesPartitionService partitionService = new SalesPartitionService(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), event -> { }, false, 3, 0, "sales_archive");
+        YearMonth current = YearMonth.now();
+        for (int i = -7; i <= 3; i++) {
+            partitionService.createPartition(current.plusMonths(i));
+        }
+
+        jdbcTemplate.update("INSERT INTO users (username, email, password, user_role, branch) " +
+                "SELECT 'user' || g, 'user' || g || '@oreo.com', 'x', 'BRANCH', 'branch_' || (g % ?) " +
+                "FROM generate_series(1, ?) g", BRANCHES, USERS);
+        jdbcTemplate.update("INSERT INTO sales (id, sku, units, price, branch, sold_at, created_by) " +
+                "SELECT g, 'SKU_' || (g % 500), 1 + g % 10, 1.5 + g % 7, 'branch_' || (g % ?), " +
+                "now() - (g % ?) * interval '1 day' - (g % 1440) * interval '1 minute', " +
+                "(SELECT min(id) FROM users) + g % ? " +
+                "FROM generate_series(1, ?) g", BRANCHES, DAYS, USERS, SALES);
+        jdbcTemplate.execute("VACUUM ANALYZE");
+        populatedPartitions = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT relname FROM pg_class WHERE relname LIKE 'sales_p%' AND relkind = 'r' AND reltuples > 1000",
+                String.class));
+
+        LocalDate day = LocalDate.now().minusDays(30);
+        dayStart = day.atStartOfDay();
+        dayEnd = day.plusDays(1).atStartOfDay().minusNanos(1000);
+        weekStart = day.minusDays(6).atStartOfDay();
+
+        // Mismas estrategias de nombres que aplica Spring Boot (soldAt -> sold_at)
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(recording(dataSource));
+        factory.setPackagesToScan("org.example.hack1");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy", "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy",
+                "hibernate.hbm2ddl.auto", "none"));
+        factory.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factory.getObject();
+        saleRepository = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                .getRepository(SaleRepository.class);
+        readOnlyTransaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Test 1: findResponseById usa la PK (id, sold_at) de cada partición
+    @Test
+    void findResponseByIdShouldUseIndex() {
+        assertNoSeqScanOnSales(query(repository -> repository.findResponseById(12345L)));
+    }
+
+    // Test 2: conteo de findResponsesBySoldAtBetween y countInRange sin sucursal
+    @Test
+    void countInRangeShouldUseIndex() {
+        assertNoSeqScanOnSales(countQuery(repository ->
+                repository.findResponsesBySoldAtBetween(dayStart, dayEnd, PageRequest.of(0, 20))));
+        assertNoSeqScanOnSales(query(repository -> repository.countInRange(dayStart, dayEnd, null)));
+    }
+
+    // Test 3: conteo de findResponsesByBranchAndSoldAtBetween y countInRange con sucursal
+    @Test
+    void countInRangeByBranchShouldUseIndex() {
+        assertNoSeqScanOnSales(countQuery(repository ->
+                repository.findResponsesByBranchAndSoldAtBetween("branch_7", weekStart, dayEnd, PageRequest.of(0, 20))));
+        assertNoSeqScanOnSales(query(repository -> repository.countInRange(dayStart, dayEnd, "branch_7")));
+    }
+
+    // Test 4: findResponsesByBranch (conteo). La consulta de datos no se prueba: sin ORDER BY y con
+    // LIMIT, un Seq Scan que corta a las pocas filas es un plan válido y barato.
+    @Test
+    void countByBranchShouldUseIndex() {
+        assertNoSeqScanOnSales(countQuery(repository ->
+                repository.findResponsesByBranch("branch_7", PageRequest.of(0, 20))));
+    }
+
+    // Test 5: findResponsesAfter (keyset) sin sucursal: recorrido de índice desde el cursor
+    @Test
+    void keysetPageShouldUseIndex() {
+        assertNoSeqScanOnSales(query(repository -> repository.findResponsesAfter(
+                LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+                dayEnd, Long.MAX_VALUE, Limit.of(21))));
+    }
+
+    // Test 6: findResponsesByBranchAfter (keyset con sucursal)
+    @Test
+    void keysetPageByBranchShouldUseIndex() {
+        assertNoSeqScanOnSales(query(repository -> repository.findResponsesByBranchAfter(
+                "branch_7", weekStart, dayEnd, dayEnd, Long.MAX_VALUE, Limit.of(21))));
+    }
+
+    // Test 7: aggregateBySkuAndBranch sobre una semana (índice cubriente)
+    @Test
+    void aggregateBySkuAndBranchShouldUseIndex() {
+        assertNoSeqScanOnSales(query(repository -> {
+            try (Stream<?> groups = repository.aggregateBySkuAndBranch(weekStart, dayEnd, null)) {
+                groups.count();
+            }
+        }));
+    }
+
+    // Test 8: ventas de un usuario (FK created_by). Es la verificación que hace Postgres al borrar un
+    // usuario, no un método del repositorio: se escribe a mano.
+    @Test
+    void salesByCreatorShouldUseIndex() {
+        Long userId = jdbcTemplate.queryForObject("SELECT min(id) FROM users", Long.class);
+        assertNoSeqScanOnSales(new RecordedStatement("SELECT s.id FROM sales s WHERE s.created_by = ?",
+                List.of(new RecordedCall(setLong(), new Object[]{1, userId}))));
+    }
+
+    // Test 9: keyset sobre muchas ventas con el mismo soldAt: el id desempata, así que se recorren
+    // todas exactamente una vez aunque el cursor caiga en medio del grupo
+    @Test
+    void keysetShouldPageThroughSalesWithSameSoldAt() {
+        LocalDateTime soldAt = jdbcTemplate.queryForObject(
+                "SELECT sold_at FROM sales GROUP BY sold_at HAVING count(*) > 100 LIMIT 1", LocalDateTime.class);
+        List<Long> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM sales WHERE sold_at = ? ORDER BY id DESC", Long.class, soldAt);
+
+        List<Long> paged = new ArrayList<>();
+        SaleCursor cursor = SaleCursor.START;
+        while (true) {
+            SaleCursor position = cursor;
+            List<SaleResponseDto> page = readOnlyTransaction.execute(status -> saleRepository.findResponsesAfter(
+                    soldAt, soldAt, position.soldAt(), position.id(), Limit.of(30)));
+            page.forEach(sale -> paged.add(sale.getId()));
+            if (page.size() < 30) {
+                break;
+            }
+            cursor = SaleCursor.decode(SaleCursor.of(page.get(page.size() - 1)).encode());
+        }
+
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+
+    // Test 10: la proyección de findResponseById llena cada campo del DTO desde su columna (el orden
+    // de los argumentos del constructor en RESPONSE_SELECT no se verifica al compilar)
+    @Test
+    void findResponseByIdShouldMapEveryField() {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT s.id, s.sku, s.units, s.price, s.branch, s.sold_at, u.username " +
+                        "FROM sales s JOIN users u ON u.id = s.created_by WHERE s.id = ?", 12345L);
+
+        SaleResponseDto sale = readOnlyTransaction.execute(status ->
+                saleRepository.findResponseById(12345L)).orElseThrow();
+
+        assertThat(sale.getId()).isEqualTo(12345L);
+        assertThat(sale.getSku()).isEqualTo(row.get("sku"));
+        assertThat(sale.getUnits()).isEqualTo(((Number) row.get("units")).intValue());
+        assertThat(sale.getPrice()).isEqualTo(((Number) row.get("price")).doubleValue());
+        assertThat(sale.getBranch()).isEqualTo(row.get("branch"));
+        assertThat(sale.getSoldAt()).isEqualTo(((Timestamp) row.get("sold_at")).toLocalDateTime());
+        assertThat(sale.getCreatedBy()).isEqualTo(row.get("username"));
+        Optional<SaleResponseDto> missing = readOnlyTransaction.execute(status -> saleRepository.findResponseById(-1L));
+        assertThat(missing).isEmpty();
+    }
+
+    // Primera sentencia que ejecuta el método (la consulta de datos)
+    private RecordedStatement query(Consumer<SaleRepository> call) {
+        return execute(call).get(0);
+    }
+
+    // Sentencia COUNT de un método paginado (la página pedida debe estar llena para que se ejecute)
+    private RecordedStatement countQuery(Consumer<SaleRepository> call) {
+        return execute(call).stream()
+                .filter(statement -> statement.sql().startsWith("select count("))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("El método no ejecutó COUNT"));
+    }
+
+    private List<RecordedStatement> execute(Consumer<SaleRepository> call) {
+        recorded.clear();
+        readOnlyTransaction.executeWithoutResult(status -> call.accept(saleRepository));
+        assertThat(recorded).as("el método no ejecutó SQL").isNotEmpty();
+        return List.copyOf(recorded);
+    }
+
+    // Se repiten sobre el EXPLAIN las mismas llamadas set* que hizo Hibernate: mismos tipos y valores
+    private void assertNoSeqScanOnSales(RecordedStatement statement) {
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+                for (RecordedCall call : statement.parameters()) {
+                    call.method().invoke(explain, call.args());
+                }
+                try (ResultSet result = explain.executeQuery()) {
+                    result.next();
+                    return result.getString(1);
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        List<String> seqScans = new ArrayList<>();
+        try {
+            collectSeqScans(objectMapper.readTree(plan).get(0).get("Plan"), seqScans);
+        } catch (Exception e) {
+            throw new IllegalStateException("Plan ilegible: " + plan, e);
+        }
+        assertThat(seqScans).as("Seq Scan sobre sales en:\n%s\nPlan: %s", statement.sql(), plan).isEmpty();
+    }
+
+    private void collectSeqScans(JsonNode node, List<String> seqScans) {
+        String relation = node.path("Relation Name").asText("");
+        if ("Seq Scan".equals(node.path("Node Type").asText()) && populatedPartitions.contains(relation)) {
+            seqScans.add(relation);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, seqScans);
+        }
+    }
+
+    // DataSource que graba cada sentencia preparada con sus llamadas set* al ejecutarla
+    private static DataSource recording(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) ->
+                method.getName().equals("getConnection") ? recordingConnection((Connection) result) : result);
+    }
+
+    private static Connection recordingConnection(Connection target) {
+        return proxy(Connection.class, target, (method, args, result) -> {
+            if (!method.getName().equals("prepareStatement")) {
+                return result;
+            }
+            String sql = (String) args[0];
+            List<RecordedCall> parameters = new ArrayList<>();
+            return proxy(PreparedStatement.class, (PreparedStatement) result, (statementMethod, statementArgs, statementResult) -> {
+                if (statementMethod.getName().startsWith("set") && statementArgs != null && statementArgs.length >= 2
+                        && statementArgs[0] instanceof Integer) {
+                    parameters.add(new RecordedCall(statementMethod, statementArgs.clone()));
+                } else if (statementMethod.getName().startsWith("execute")) {
+                    recorded.add(new RecordedStatement(sql, List.copyOf(parameters)));
+                }
+                return statementResult;
+            });
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultDecorator decorator) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return decorator.decorate(method, args, result);
+        });
+    }
+
+    private static Method setLong() {
+        try {
+            return PreparedStatement.class.getMethod("setLong", int.class, long.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface ResultDecorator {
+        Object decorate(Method method, Object[] args, Object result) throws Throwable;
+    }
+
+    private record RecordedCall(Method method, Object[] args) {
+    }
+
+    private record RecordedStatement(String sql, List<RecordedCall> parameters) {
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.Sale;
+import org.example.hack1.sale.domain.SalesRollupService;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.example.hack1.sale.repo.SalesHourlyRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 9, 1, 10, 30);
+
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    @Mock
+    private SalesHourlyRollupRepository hourlyRollupRepository;
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private SalesRollupService rollupService;
+
+    // Test 1: Los upserts salen ordenados por (día, sucursal, sku) y (hora, sucursal) sin importar el
+    // orden del lote: dos lotes con las mismas claves en orden inverso toman los locks en el mismo orden
+    @Test
+    void shouldApplyUpsertsInKeyOrderRegardlessOfBatchOrder() {
+        List<Sale> sales = List.of(
+                sale("OREO_THINS", "San Isidro", MONDAY.plusDays(1)),
+                sale("OREO_DOUBLE", "Miraflores", MONDAY.plusHours(2)),
+                sale("OREO_CLASSIC", "San Isidro", MONDAY),
+                sale("OREO_CLASSIC", "Miraflores", MONDAY));
+
+        rollupService.recordSales(sales);
+        rollupService.recordSales(sales.reversed());
+
+        ArgumentCaptor<SqlParameterSource[]> daily = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        ArgumentCaptor<SqlParameterSource[]> hourly = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(SalesDailyRollupRepository.UPSERT_SQL), daily.capture());
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(SalesHourlyRollupRepository.UPSERT_SQL), hourly.capture());
+
+        List<String> expectedDaily = List.of(
+                "2025-09-01|Miraflores|OREO_CLASSIC",
+                "2025-09-01|Miraflores|OREO_DOUBLE",
+                "2025-09-01|San Isidro|OREO_CLASSIC",
+                "2025-09-02|San Isidro|OREO_THINS");
+        List<String> expectedHourly = List.of(
+                "2025-09-01T10:00|Miraflores",
+                "2025-09-01T10:00|San Isidro",
+                "2025-09-01T12:00|Miraflores",
+                "2025-09-02T10:00|San Isidro");
+        for (SqlParameterSource[] batch : daily.getAllValues()) {
+            assertThat(keys(batch, "day", "branch", "sku")).containsExactlyElementsOf(expectedDaily);
+        }
+        for (SqlParameterSource[] batch : hourly.getAllValues()) {
+            assertThat(keys(batch, "hour", "branch")).containsExactlyElementsOf(expectedHourly);
+        }
+    }
+
+    private static List<String> keys(SqlParameterSource[] batch, String... names) {
+        return Arrays.stream(batch)
+                .map(params -> String.join("|", Arrays.stream(names)
+                        .map(name -> String.valueOf(params.getValue(name)))
+                        .toList()))
+                .toList();
+    }
+
+    private static Sale sale(String sku, String branch, LocalDateTime soldAt) {
+        Sale sale = new Sale();
+        sale.setSku(sku);
+        sale.setBranch(branch);
+        sale.setSoldAt(soldAt);
+        sale.setUnits(1);
+        sale.setPrice(2.5);
+        return sale;
+    }
+}
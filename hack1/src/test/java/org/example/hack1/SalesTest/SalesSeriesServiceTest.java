@@ -0,0 +1,153 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SalesSeriesService;
+import org.example.hack1.sale.domain.SeriesGranularity;
+import org.example.hack1.sale.dto.SalesDayView;
+import org.example.hack1.sale.dto.SalesHourView;
+import org.example.hack1.sale.dto.SalesSeriesPointDto;
+import org.example.hack1.sale.repo.SalesDailyRollupRepository;
+import org.example.hack1.sale.repo.SalesHourlyRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesSeriesServiceTest {
+
+    @Mock
+    private SalesDailyRollupRepository dailyRollupRepository;
+
+    @Mock
+    private SalesHourlyRollupRepository hourlyRollupRepository;
+
+    @InjectMocks
+    private SalesSeriesService seriesService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(seriesService, "maxHourlyDays", 31);
+        ReflectionTestUtils.setField(seriesService, "maxDailyDays", 731);
+        ReflectionTestUtils.setField(seriesService, "maxWeeklyDays", 3653);
+    }
+
+    // Test 1: Serie diaria con todos los días del rango, en cero los que no tienen ventas
+    @Test
+    void shouldFillEmptyDailyBuckets() {
+        LocalDate from = LocalDate.of(2025, 9, 1);
+        when(dailyRollupRepository.sumByDay(from, from.plusDays(4), "Miraflores"))
+                .thenReturn(List.of(day(from.plusDays(1), 10, 19.9), day(from.plusDays(3), 2, 4.0)));
+
+        List<SalesSeriesPointDto> points = seriesService.getSeries(SeriesGranularity.DAY, from, from.plusDays(4), "Miraflores");
+
+        assertThat(points).extracting(SalesSeriesPointDto::getBucket).containsExactly(
+                from.atStartOfDay(), from.plusDays(1).atStartOfDay(), from.plusDays(2).atStartOfDay(),
+                from.plusDays(3).atStartOfDay(), from.plusDays(4).atStartOfDay());
+        assertThat(points).extracting(SalesSeriesPointDto::getUnits).containsExactly(0L, 10L, 0L, 2L, 0L);
+        assertThat(points.get(1).getRevenue()).isEqualTo(19.9);
+    }
+
+    // Test 2: Semanas etiquetadas con su lunes: la primera empieza antes de from si from cae a mitad de semana
+    @Test
+    void shouldAlignWeeklyBucketsToMonday() {
+        LocalDate from = LocalDate.of(2025, 9, 3);
+        LocalDate to = LocalDate.of(2025, 9, 16);
+        when(dailyRollupRepository.sumByDay(from, to, null)).thenReturn(List.of(
+                day(LocalDate.of(2025, 9, 3), 1, 1.0),
+                day(LocalDate.of(2025, 9, 7), 2, 2.0),
+                day(LocalDate.of(2025, 9, 8), 4, 4.0),
+                day(LocalDate.of(2025, 9, 16), 8, 8.0)));
+
+        List<SalesSeriesPointDto> points = seriesService.getSeries(SeriesGranularity.WEEK, from, to, null);
+
+        assertThat(points).extracting(SalesSeriesPointDto::getBucket).containsExactly(
+                LocalDate.of(2025, 9, 1).atStartOfDay(),
+                LocalDate.of(2025, 9, 8).atStartOfDay(),
+                LocalDate.of(2025, 9, 15).atStartOfDay());
+        assertThat(points).allSatisfy(point -> assertThat(point.getBucket().getDayOfWeek()).isEqualTo(DayOfWeek.MONDAY));
+        assertThat(points).extracting(SalesSeriesPointDto::getUnits).containsExactly(3L, 4L, 8L);
+    }
+
+    // Test 3: Serie por hora con 24 buckets por día
+    @Test
+    void shouldFillHourlyBuckets() {
+        LocalDate day = LocalDate.of(2025, 9, 1);
+        when(hourlyRollupRepository.sumByHour(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), null))
+                .thenReturn(List.of(hour(day.atTime(13, 0), 5, 9.95)));
+
+        List<SalesSeriesPointDto> points = seriesService.getSeries(SeriesGranularity.HOUR, day, day, null);
+
+        assertThat(points).hasSize(24);
+        assertThat(points.get(13).getBucket()).isEqualTo(day.atTime(13, 0));
+        assertThat(points.get(13).getUnits()).isEqualTo(5L);
+        assertThat(points.stream().mapToLong(SalesSeriesPointDto::getUnits).sum()).isEqualTo(5L);
+    }
+
+    // Test 4: Cada granularidad tiene su rango máximo y se rechaza sin consultar
+    @Test
+    void shouldRejectRangesAboveGranularityLimit() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+
+        assertBadRequest(SeriesGranularity.HOUR, from, from.plusDays(31));
+        assertBadRequest(SeriesGranularity.DAY, from, from.plusDays(731));
+        assertBadRequest(SeriesGranularity.WEEK, from, from.plusDays(3653));
+        verifyNoInteractions(dailyRollupRepository, hourlyRollupRepository);
+
+        when(hourlyRollupRepository.sumByHour(any(), any(), any())).thenReturn(List.of());
+        assertThat(seriesService.getSeries(SeriesGranularity.HOUR, from, from.plusDays(30), null)).hasSize(31 * 24);
+    }
+
+    private void assertBadRequest(SeriesGranularity granularity, LocalDate from, LocalDate to) {
+        assertThatThrownBy(() -> seriesService.getSeries(granularity, from, to, null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static SalesDayView day(LocalDate day, long units, double revenue) {
+        return new SalesDayView() {
+            public LocalDate getDay() {
+                return day;
+            }
+
+            public Long getUnits() {
+                return units;
+            }
+
+            public Double getRevenue() {
+                return revenue;
+            }
+        };
+    }
+
+    private static SalesHourView hour(LocalDateTime hour, long units, double revenue) {
+        return new SalesHourView() {
+            public LocalDateTime getHour() {
+                return hour;
+            }
+
+            public Long getUnits() {
+                return units;
+            }
+
+            public Double getRevenue() {
+                return revenue;
+            }
+        };
+    }
+}
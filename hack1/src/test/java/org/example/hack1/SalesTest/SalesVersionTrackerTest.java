@@ -0,0 +1,57 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.SalesVersionTracker;
+import org.example.hack1.sale.domain.event.AllSalesChangedEvent;
+import org.example.hack1.sale.domain.event.SaleChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesVersionTrackerTest {
+
+    // Test 1: Una escritura cambia el ETag de su sucursal y el global, no el de otras sucursales
+    @Test
+    void shouldChangeEtagOnlyForAffectedBranchAndGlobal() {
+        SalesVersionTracker tracker = new SalesVersionTracker(null, "", Duration.ZERO);
+        String miraflores = tracker.etag("Miraflores");
+        String sanIsidro = tracker.etag("San Isidro");
+        String all = tracker.etag(null);
+
+        tracker.onSaleChanged(new SaleChangedEvent("Miraflores", LocalDateTime.now()));
+
+        assertThat(tracker.etag("Miraflores")).isNotEqualTo(miraflores);
+        assertThat(tracker.etag(null)).isNotEqualTo(all);
+        assertThat(tracker.etag("San Isidro")).isEqualTo(sanIsidro);
+    }
+
+    // Test 2: ETags fuertes y distintos por sucursal aun sin escrituras
+    @Test
+    void shouldProduceStrongEtagsPerBranch() {
+        SalesVersionTracker tracker = new SalesVersionTracker(null, "", Duration.ZERO);
+
+        assertThat(tracker.etag("Miraflores")).startsWith("\"").endsWith("\"").doesNotStartWith("W/");
+        assertThat(tracker.etag("Miraflores")).isNotEqualTo(tracker.etag("San Isidro"));
+    }
+
+    // Test 3: Un cambio sin sucursal (archivado, baja de usuario) cambia todos los ETags, también
+    // los de sucursales sin escrituras previas, y adelanta Last-Modified
+    @Test
+    void shouldChangeEveryEtagOnAllSalesChanged() {
+        SalesVersionTracker tracker = new SalesVersionTracker(null, "", Duration.ZERO);
+        tracker.onSaleChanged(new SaleChangedEvent("Miraflores", LocalDateTime.now()));
+        String miraflores = tracker.etag("Miraflores");
+        String sanIsidro = tracker.etag("San Isidro");
+        String all = tracker.etag(null);
+        long sanIsidroModified = tracker.lastModified("San Isidro");
+
+        tracker.onAllSalesChanged(new AllSalesChangedEvent("particiones archivadas"));
+
+        assertThat(tracker.etag("Miraflores")).isNotEqualTo(miraflores);
+        assertThat(tracker.etag("San Isidro")).isNotEqualTo(sanIsidro);
+        assertThat(tracker.etag(null)).isNotEqualTo(all);
+        assertThat(tracker.lastModified("San Isidro")).isGreaterThan(sanIsidroModified);
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.domain.HeavyHitter;
+import org.example.hack1.sale.domain.SpaceSavingSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingSketchTest {
+
+    // Test 1: Con menos claves que la capacidad el conteo es exacto
+    @Test
+    void shouldBeExactBelowCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add("OREO_CLASSIC", 10);
+        sketch.add("OREO_DOUBLE", 15);
+        sketch.add("OREO_CLASSIC", 8);
+
+        List<HeavyHitter> top = sketch.top(2);
+
+        assertThat(top).containsExactly(
+                new HeavyHitter("OREO_CLASSIC", 18, 0),
+                new HeavyHitter("OREO_DOUBLE", 15, 0));
+    }
+
+    // Test 2: Memoria fija y el heavy hitter real sigue primero, con su cota de error
+    @Test
+    void shouldKeepHeavyHitterWithinFixedCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("OREO_CLASSIC", 50);
+            sketch.add("SKU_" + i, 1);
+        }
+
+        List<HeavyHitter> counters = sketch.counters();
+
+        assertThat(counters).hasSize(3);
+        HeavyHitter first = counters.get(0);
+        assertThat(first.key()).isEqualTo("OREO_CLASSIC");
+        // El valor real (5000) siempre está dentro de [units - maxError, units]
+        assertThat(first.units() - first.maxError()).isLessThanOrEqualTo(5000);
+        assertThat(first.units()).isGreaterThanOrEqualTo(5000);
+    }
+
+    // Test 3: Combinar sketches de dos nodos
+    @Test
+    void shouldMergeSketchesFromDifferentPartitions() {
+        SpaceSavingSketch left = new SpaceSavingSketch(5);
+        left.add("OREO_CLASSIC", 10);
+        left.add("OREO_THINS", 3);
+
+        SpaceSavingSketch right = SpaceSavingSketch.of(5, List.of(
+                new HeavyHitter("OREO_THINS", 12, 0),
+                new HeavyHitter("OREO_DOUBLE", 4, 0)));
+
+        List<HeavyHitter> top = left.merge(right).top(3);
+
+        assertThat(top).containsExactly(
+                new HeavyHitter("OREO_THINS", 15, 0),
+                new HeavyHitter("OREO_CLASSIC", 10, 0),
+                new HeavyHitter("OREO_DOUBLE", 4, 0));
+    }
+
+    // Test 4: La clave nueva reemplaza al mínimo actual, también después de que los conteos cambiaron
+    @Test
+    void shouldReplaceCurrentMinimum() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add("OREO_CLASSIC", 5);
+        sketch.add("OREO_DOUBLE", 3);
+        sketch.add("OREO_CLASSIC", 1);
+        sketch.add("OREO_THINS", 1);
+        sketch.add("OREO_DOUBLE", 7);
+
+        assertThat(sketch.counters()).containsExactly(
+                new HeavyHitter("OREO_DOUBLE", 11, 4),
+                new HeavyHitter("OREO_CLASSIC", 6, 0));
+    }
+
+    // Test 5: Con muchas claves la suma de contadores es el total del flujo y cada cota contiene el
+    // valor real (invariantes de Space-Saving)
+    @Test
+    void shouldKeepInvariantsOverLongStream() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // Pocas claves frecuentes y una cola larga
+            String key = random.nextInt(4) == 0 ? "HOT_" + random.nextInt(5) : "SKU_" + random.nextInt(5_000);
+            long units = 1 + random.nextInt(3);
+            sketch.add(key, units);
+            exact.merge(key, units, Long::sum);
+            total += units;
+        }
+
+        List<HeavyHitter> counters = sketch.counters();
+
+        assertThat(counters).hasSize(50);
+        assertThat(counters.stream().mapToLong(HeavyHitter::units).sum()).isEqualTo(total);
+        assertThat(counters).isSortedAccordingTo(
+                Comparator.comparingLong(HeavyHitter::units).reversed());
+        for (HeavyHitter counter : counters) {
+            long real = exact.get(counter.key());
+            assertThat(real).isBetween(counter.units() - counter.maxError(), counter.units());
+        }
+        assertThat(sketch.top(5)).extracting(HeavyHitter::key)
+                .containsExactlyInAnyOrder("HOT_0", "HOT_1", "HOT_2", "HOT_3", "HOT_4");
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.hack1.SalesTest;
+
+import org.example.hack1.sale.config.SalesAggregationConfig;
+import org.example.hack1.sale.config.SalesExportConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Con salesAggregationPool (un Executor) en el contexto, applicationTaskExecutor debe existir igual
+// y con los límites de hack1-defaults.properties; las exportaciones usan su propio ejecutor
+class TaskExecutorConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withUserConfiguration(SalesAggregationConfig.class);
+
+    // Test 1: sin la configuración versionada, Spring Boot no crea el ejecutor (el problema original)
+    @Test
+    void shouldBackOffWithoutTrackedDefaults() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean("applicationTaskExecutor"));
+    }
+
+    // Test 2: con hack1-defaults.properties se crea y respeta core/max/cola
+    @Test
+    void shouldCreateBoundedApplicationTaskExecutorWithTrackedDefaults() {
+        contextRunner
+                .withInitializer(context -> context.getEnvironment().getPropertySources().addLast(defaults()))
+                .run(context -> {
+                    assertThat(context).hasBean("applicationTaskExecutor");
+                    ThreadPoolTaskExecutor executor = context.getBean("applicationTaskExecutor", ThreadPoolTaskExecutor.class);
+                    assertThat(executor.getCorePoolSize()).isEqualTo(5);
+                    assertThat(executor.getMaxPoolSize()).isEqualTo(10);
+                    assertThat(executor.getQueueCapacity()).isEqualTo(100);
+                });
+    }
+
+    // Test 3: el MVC async (GET /sales/export) corre en salesExportExecutor y no en applicationTaskExecutor,
+    // conservando el timeout configurado
+    @Test
+    void shouldRunMvcAsyncOnDedicatedExportExecutor() {
+        new WebApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class,
+                        WebMvcAutoConfiguration.class))
+                .withUserConfiguration(SalesAggregationConfig.class, SalesExportConfig.class)
+                .withInitializer(context -> context.getEnvironment().getPropertySources().addLast(defaults()))
+                .run(context -> {
+                    assertThat(context).hasBean("applicationTaskExecutor");
+                    ThreadPoolTaskExecutor exportExecutor = context.getBean("salesExportExecutor", ThreadPoolTaskExecutor.class);
+                    assertThat(exportExecutor.getMaxPoolSize()).isEqualTo(4);
+
+                    RequestMappingHandlerAdapter adapter = context.getBean(RequestMappingHandlerAdapter.class);
+                    assertThat(ReflectionTestUtils.getField(adapter, "taskExecutor")).isSameAs(exportExecutor);
+                    assertThat(ReflectionTestUtils.getField(adapter, "asyncRequestTimeout"))
+                            .isEqualTo(Duration.ofMinutes(30).toMillis());
+                });
+    }
+
+    private static ResourcePropertySource defaults() {
+        try {
+            return new ResourcePropertySource("classpath:hack1-defaults.properties");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
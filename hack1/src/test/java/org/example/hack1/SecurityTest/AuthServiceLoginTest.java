@@ -0,0 +1,85 @@
+package org.example.hack1.SecurityTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.security.dto.AuthResponse;
+import org.example.hack1.security.sec.JwtUtil;
+import org.example.hack1.security.service.AuthService;
+import org.example.hack1.user.domain.User;
+import org.example.hack1.user.domain.UserRole;
+import org.example.hack1.user.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceLoginTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtil jwtUtil = new JwtUtil(meterRegistry,
+                Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()), 3600L, 100);
+        // Costo configurado 5: los hashes con costo 4 se consideran desactualizados
+        authService = new AuthService(userRepository, jwtUtil, new BCryptPasswordEncoder(5), meterRegistry);
+    }
+
+    private static User user(String hash) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("miraflores_user");
+        user.setPassword(hash);
+        user.setUserRole(UserRole.BRANCH);
+        user.setBranch("Miraflores");
+        return user;
+    }
+
+    // Test 1: login correcto con hash de costo menor: un solo lookup y rehash al costo configurado
+    @Test
+    void shouldLoginWithSingleLookupAndRehashWeakHash() {
+        String weakHash = new BCryptPasswordEncoder(4).encode("secret");
+        when(userRepository.findByUsername("miraflores_user")).thenReturn(Optional.of(user(weakHash)));
+
+        AuthResponse response = authService.login("miraflores_user", "secret");
+
+        assertThat(response.getToken()).isNotBlank();
+        assertThat(response.getBranch()).isEqualTo("Miraflores");
+        verify(userRepository, times(1)).findByUsername("miraflores_user");
+        verify(userRepository).updatePassword(eq("miraflores_user"), argThat(hash -> hash.startsWith("$2a$05$")));
+    }
+
+    // Test 2: contraseña incorrecta o usuario inexistente responden igual (401) y no rehashean
+    @Test
+    void shouldRejectWrongPasswordAndUnknownUserAlike() {
+        String hash = new BCryptPasswordEncoder(5).encode("secret");
+        when(userRepository.findByUsername("miraflores_user")).thenReturn(Optional.of(user(hash)));
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> authService.login("miraflores_user", "wrong"))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThatThrownBy(() -> authService.login("ghost", "secret"))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(userRepository, never()).updatePassword(anyString(), anyString());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.hack1.SecurityTest;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.JwtUtil;
+import org.example.hack1.user.domain.User;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), SECRET, 3600L, 100);
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("miraflores_user");
+        user.setUserRole(UserRole.BRANCH);
+        user.setBranch("Miraflores");
+        return user;
+    }
+
+    // Test 1: verify devuelve todos los claims y la segunda llamada sale del caché con el mismo principal
+    @Test
+    void shouldVerifyOnceAndServeRepeatsFromCache() {
+        String token = jwtUtil.generateToken(user());
+
+        JwtPrincipal principal = jwtUtil.verify(token);
+
+        assertThat(principal.userId()).isEqualTo(7L);
+        assertThat(principal.username()).isEqualTo("miraflores_user");
+        assertThat(principal.role()).isEqualTo(UserRole.BRANCH);
+        assertThat(principal.branch()).isEqualTo("Miraflores");
+        assertThat(jwtUtil.verify(token)).isSameAs(principal);
+    }
+
+    // Test 2: un token con la firma alterada no aprovecha el caché del original
+    @Test
+    void shouldRejectTamperedTokenEvenIfOriginalIsCached() {
+        String token = jwtUtil.generateToken(user());
+        jwtUtil.verify(token);
+        int i = token.lastIndexOf('.') + 5;
+        String tampered = token.substring(0, i) + (token.charAt(i) == 'A' ? 'B' : 'A') + token.substring(i + 1);
+
+        assertThatThrownBy(() -> jwtUtil.verify(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    // Test 3: un token firmado con otra clave no es válido
+    @Test
+    void shouldRejectTokenSignedWithAnotherKey() {
+        JwtUtil other = new JwtUtil(new SimpleMeterRegistry(),
+                Base64.getEncoder().encodeToString("another-secret-another-secret-xx".getBytes()), 3600L, 100);
+        String token = other.generateToken(user());
+
+        assertThatThrownBy(() -> jwtUtil.verify(token)).isInstanceOf(JwtException.class);
+    }
+}
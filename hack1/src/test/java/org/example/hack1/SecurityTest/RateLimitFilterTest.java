@@ -0,0 +1,121 @@
+package org.example.hack1.SecurityTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.hack1.security.sec.GcraBucket;
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.RateLimitFilter;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // BRANCH: 1 req/s con ráfaga de 3 por usuario; sucursal: ráfaga de 4 entre todos sus usuarios
+        filter = new RateLimitFilter(meterRegistry, true, 1, 3, 10, 10, 1, 4, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticate(long userId, String branch) {
+        JwtPrincipal principal = new JwtPrincipal(userId, "user" + userId, UserRole.BRANCH, branch,
+                Instant.now().plusSeconds(3600));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_BRANCH"))));
+    }
+
+    private MockHttpServletResponse perform(String method, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    // Test 1: GCRA admite la ráfaga completa y luego exige esperar un intervalo
+    @Test
+    void gcraShouldAdmitBurstThenOneRequestPerInterval() {
+        GcraBucket bucket = new GcraBucket(10, 3);
+        long now = 1_000_000_000L;
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(100_000_000L);
+        assertThat(bucket.tryAcquire(now + 100_000_000L)).isZero();
+    }
+
+    // Test 2: con hilos concurrentes se admiten exactamente burst requests
+    @Test
+    void gcraShouldNotOverAdmitUnderContention() throws Exception {
+        GcraBucket bucket = new GcraBucket(0.001, 50);
+        long now = System.nanoTime();
+        AtomicInteger admitted = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> {
+                    if (bucket.tryAcquire(now) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                });
+            }
+        }
+        assertThat(admitted.get()).isEqualTo(50);
+    }
+
+    // Test 3: pasada la ráfaga del usuario responde 429 con Retry-After; las lecturas no se limitan
+    @Test
+    void shouldRejectWritesOverUserLimitWithRetryAfter() throws Exception {
+        authenticate(1L, "Miraflores");
+        for (int i = 0; i < 3; i++) {
+            assertThat(perform("POST", "/sales").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = perform("POST", "/sales/summary/weekly");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(rejected.getContentAsString()).contains("TOO_MANY_REQUESTS");
+        assertThat(perform("GET", "/sales").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("security.rate_limit.requests")
+                .tags("scope", "user", "key", "1", "outcome", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    // Test 4: el límite por sucursal se comparte entre sus usuarios
+    @Test
+    void shouldShareBranchLimitAcrossUsers() throws Exception {
+        authenticate(1L, "Miraflores");
+        perform("POST", "/sales");
+        perform("POST", "/sales");
+        authenticate(2L, "Miraflores");
+        perform("POST", "/sales");
+        perform("POST", "/sales");
+
+        assertThat(perform("POST", "/sales").getStatus()).isEqualTo(429);
+        authenticate(3L, "San Isidro");
+        assertThat(perform("POST", "/sales").getStatus()).isEqualTo(200);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.hack1.SecurityTest;
+
+import org.example.hack1.security.sec.JwtPrincipal;
+import org.example.hack1.security.sec.SecurityUtils;
+import org.example.hack1.user.domain.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SecurityUtilsTest {
+
+    private final SecurityUtils securityUtils = new SecurityUtils();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticate(UserRole role, String branch) {
+        JwtPrincipal principal = new JwtPrincipal(7L, "user7", role, branch, Instant.now().plusSeconds(3600));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + role.name()))));
+    }
+
+    // Test 1: usuario BRANCH: la sucursal sale del token y solo accede a la suya
+    @Test
+    void branchUserShouldOnlyAccessOwnBranchFromClaims() {
+        authenticate(UserRole.BRANCH, "Miraflores");
+
+        assertThat(securityUtils.getCurrentUsername()).isEqualTo("user7");
+        assertThat(securityUtils.getCurrentUserBranch()).isEqualTo("Miraflores");
+        assertThat(securityUtils.hasAccessToBranch("Miraflores")).isTrue();
+        assertThat(securityUtils.hasAccessToBranch("San Isidro")).isFalse();
+    }
+
+    // Test 2: usuario CENTRAL accede a todas; sin autenticación no hay principal
+    @Test
+    void centralUserShouldAccessAnyBranchAndAnonymousHasNoPrincipal() {
+        authenticate(UserRole.CENTRAL, null);
+        assertThat(securityUtils.hasAccessToBranch("San Isidro")).isTrue();
+
+        SecurityContextHolder.clearContext();
+        assertThatThrownBy(securityUtils::requireCurrentPrincipal).isInstanceOf(ResponseStatusException.class);
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.hack1.SecurityTest;
+
+import org.example.hack1.sale.repo.SaleRepository;
+import org.example.hack1.user.config.UserCacheConfig;
+import org.example.hack1.user.domain.User;
+import org.example.hack1.user.domain.UserRole;
+import org.example.hack1.user.domain.UserService;
+import org.example.hack1.user.dto.UserRequestDto;
+import org.example.hack1.user.repo.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Caché de usuarios por username con el proxy de @EnableCaching real (UserCacheConfig): las altas y
+// bajas de UserService deben evictar y el siguiente lookup debe volver al repositorio
+class UserCacheEvictionTest {
+
+    private final UserRepository repositoryTarget = mock(UserRepository.class);
+    private final SaleRepository saleRepository = mock(SaleRepository.class);
+
+    // Conversión de Spring Boot para que user.cache.ttl (Duration) se resuelva como en la aplicación
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(UserCacheConfig.class)
+            .withBean(UserRepository.class, () -> repositoryTarget)
+            .withBean(SaleRepository.class, () -> saleRepository)
+            .withBean(PasswordEncoder.class, NoOpPasswordEncoder::getInstance)
+            .withBean(UserService.class);
+
+    // Test 1: Lookups repetidos salen del caché; los usernames inexistentes no se cachean
+    @Test
+    void shouldCacheFoundUsersOnly() {
+        when(repositoryTarget.findByUsername("ana")).thenReturn(Optional.of(user(1L, "Miraflores")));
+        when(repositoryTarget.findByUsername("nadie")).thenReturn(Optional.empty());
+
+        contextRunner.run(context -> {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+
+            userRepository.findByUsername("ana");
+            userRepository.findByUsername("ana");
+            userRepository.findByUsername("nadie");
+            userRepository.findByUsername("nadie");
+
+            verify(repositoryTarget, times(1)).findByUsername("ana");
+            verify(repositoryTarget, times(2)).findByUsername("nadie");
+        });
+    }
+
+    // Test 2: createUser evicta su username: el usuario guardado reemplaza a la entrada cacheada
+    @Test
+    void createUserShouldEvictAndReload() {
+        when(repositoryTarget.findByUsername("ana"))
+                .thenReturn(Optional.of(user(1L, "Miraflores")), Optional.of(user(1L, "San Isidro")));
+        when(repositoryTarget.save(any(User.class))).then(returnsFirstArg());
+
+        contextRunner.run(context -> {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            assertThat(userRepository.findByUsername("ana")).get().extracting(User::getBranch).isEqualTo("Miraflores");
+
+            context.getBean(UserService.class).createUser(
+                    new UserRequestDto("ana", "ana@oreo.com", "password123", UserRole.BRANCH, "San Isidro"));
+
+            assertThat(cache(context.getBean(CacheManager.class)).get("ana")).isNull();
+            assertThat(userRepository.findByUsername("ana")).get().extracting(User::getBranch).isEqualTo("San Isidro");
+            verify(repositoryTarget, times(2)).findByUsername("ana");
+        });
+    }
+
+    // Test 3: deleteUser vacía el caché (solo conoce el id): el token de un usuario borrado ya no se
+    // resuelve desde la entrada vieja
+    @Test
+    void deleteUserShouldEvictAndReload() {
+        when(repositoryTarget.findByUsername("ana")).thenReturn(Optional.of(user(1L, "Miraflores")), Optional.empty());
+        when(repositoryTarget.findByUsername("beto")).thenReturn(Optional.of(user(2L, "Miraflores")));
+        when(repositoryTarget.existsById(1L)).thenReturn(true);
+
+        contextRunner.run(context -> {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            userRepository.findByUsername("ana");
+            userRepository.findByUsername("beto");
+
+            context.getBean(UserService.class).deleteUser(1L);
+
+            Cache cache = cache(context.getBean(CacheManager.class));
+            assertThat(cache.get("ana")).isNull();
+            assertThat(cache.get("beto")).isNull();
+            assertThat(userRepository.findByUsername("ana")).isEmpty();
+            verify(repositoryTarget, times(2)).findByUsername("ana");
+            verify(repositoryTarget).deleteById(1L);
+        });
+    }
+
+    private static Cache cache(CacheManager cacheManager) {
+        return cacheManager.getCache(UserRepository.USERS_BY_USERNAME);
+    }
+
+    private static User user(Long id, String branch) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id == 1L ? "ana" : "beto");
+        user.setUserRole(UserRole.BRANCH);
+        user.setBranch(branch);
+        return user;
+    }
+}